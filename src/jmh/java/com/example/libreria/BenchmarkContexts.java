@@ -0,0 +1,41 @@
+package com.example.libreria;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Arranca la aplicación con una base H2 en memoria propia por benchmark.
+ */
+public final class BenchmarkContexts {
+    
+    private BenchmarkContexts() {
+    }
+    
+    // Sin servidor web: los benchmarks llaman directamente a servicios y repositorios
+    public static ConfigurableApplicationContext start(String database, String... profiles) {
+        return builder(database, profiles)
+                .web(WebApplicationType.NONE)
+                .run();
+    }
+    
+    // Con Tomcat en un puerto libre: para pruebas de carga HTTP
+    public static ConfigurableApplicationContext startWeb(String database, String... profiles) {
+        return builder(database, profiles)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0")
+                .run();
+    }
+    
+    // Los argumentos de run(...) y los perfiles tienen prioridad sobre estas propiedades por defecto
+    public static SpringApplicationBuilder builder(String database, String... profiles) {
+        return new SpringApplicationBuilder(LibreriaApplication.class)
+                .profiles(profiles)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.jpa.show-sql=false",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN");
+    }
+}
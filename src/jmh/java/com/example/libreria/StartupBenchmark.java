@@ -0,0 +1,70 @@
+package com.example.libreria;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reinicio de la aplicación sobre una base H2 en archivo que ya existe: esquema diferenciado por
+ * Hibernate (ddl-auto: update) frente al perfil prod (Flyway sin migraciones pendientes + validate).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+    
+    @Param({"ddl-auto", "flyway"})
+    public String schema;
+    
+    private Path dataDir;
+    
+    // El primer arranque crea el esquema; las iteraciones miden los reinicios posteriores
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("bench-startup");
+        start().close();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(dataDir);
+    }
+    
+    @Benchmark
+    public void restart() {
+        start().close();
+    }
+    
+    private ConfigurableApplicationContext start() {
+        if ("flyway".equals(schema)) {
+            return BenchmarkContexts.builder("bench_startup", "prod")
+                    .web(WebApplicationType.NONE)
+                    .run("--libreria.h2.data-dir=" + dataDir);
+        }
+        return BenchmarkContexts.builder("bench_startup")
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:file:" + dataDir + "/libreria_db;DB_CLOSE_ON_EXIT=FALSE",
+                        "--spring.sql.init.mode=never");
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.libreria.config;
+
+import com.example.libreria.dto.ExternalBookDTO;
+import com.example.libreria.service.BookSnapshotStore;
+import com.example.libreria.service.ExternalBookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExternalBookService.fetchBookById con cada cliente HTTP contra un servidor local,
+ * desde varios hilos a la vez: mide el costo de abrir conexiones frente a reutilizarlas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ExternalApiClientBenchmark {
+    
+    private static final byte[] BOOK_JSON = ("{\"id\":258027,\"has_fulltext\":true,\"edition_count\":120," +
+            "\"title\":\"The Lord of the Rings\",\"author_name\":[\"J. R. R. Tolkien\"]," +
+            "\"first_publish_year\":1954,\"price\":15.99}").getBytes(StandardCharsets.UTF_8);
+    
+    @Param({"SIMPLE", "JDK", "APACHE"})
+    public ExternalApiHttpProperties.Client client;
+    
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ClientHttpRequestFactory requestFactory;
+    private ExternalBookService externalBookService;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Sin TCP_NODELAY el stub escribe cabeceras y cuerpo por separado y cada respuesta espera el ACK diferido
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+        server.setExecutor(serverExecutor);
+        server.createContext("/books", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BOOK_JSON.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BOOK_JSON);
+            }
+        });
+        server.start();
+        
+        ExternalApiHttpProperties properties = new ExternalApiHttpProperties();
+        properties.setClient(client);
+        requestFactory = new RestTemplateConfig().clientHttpRequestFactory(properties);
+        externalBookService = new ExternalBookService(new RestTemplate(requestFactory), new ObjectMapper(),
+                new SimpleAsyncTaskExecutor(),
+                new BookSnapshotStore(Files.createTempDirectory("libreria-benchmark"), Duration.ofHours(24)),
+                CircuitBreakerRegistry.ofDefaults(), RetryRegistry.ofDefaults(), 8);
+        ReflectionTestUtils.setField(externalBookService, "externalApiUrl",
+                "http://localhost:" + server.getAddress().getPort() + "/books");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (requestFactory instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+    
+    @Benchmark
+    public ExternalBookDTO fetchBookById() {
+        return externalBookService.fetchBookById(ThreadLocalRandom.current().nextLong(1, 10_000));
+    }
+}
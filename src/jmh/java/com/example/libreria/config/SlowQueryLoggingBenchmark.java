@@ -0,0 +1,83 @@
+package com.example.libreria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura por clave primaria contra H2 en memoria, directa sobre Hikari o a través de
+ * SlowQueryLoggingDataSource (ninguna sentencia supera el umbral): mide lo que cuesta el proxy
+ * JDBC y la agregación en SqlStatementStats en cada consulta rápida.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SlowQueryLoggingBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"false", "true"})
+    public boolean slowQueryLog;
+
+    private HikariDataSource pool;
+    private DataSource dataSource;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:bench_slow_query;DB_CLOSE_DELAY=-1");
+        pool.setMaximumPoolSize(4);
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS books (external_id BIGINT PRIMARY KEY, title VARCHAR(255), " +
+                    "available_quantity INT)");
+            statement.execute("DELETE FROM books");
+            statement.execute("INSERT INTO books SELECT X, 'Libro ' || X, 10 FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+        dataSource = slowQueryLog
+                ? new SlowQueryLoggingDataSource(pool, new SqlStatementStats(500), Duration.ofMillis(200))
+                : pool;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public String findByPrimaryKey() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT title, available_quantity FROM books WHERE external_id = ?")) {
+            statement.setLong(1, ThreadLocalRandom.current().nextLong(1, ROWS + 1));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+}
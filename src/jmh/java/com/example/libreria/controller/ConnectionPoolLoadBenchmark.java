@@ -0,0 +1,119 @@
+package com.example.libreria.controller;
+
+import com.example.libreria.BenchmarkContexts;
+import com.example.libreria.model.Book;
+import com.example.libreria.model.User;
+import com.example.libreria.repository.BookRepository;
+import com.example.libreria.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ráfagas HTTP contra ReservationController (altas y listados por usuario) con distintos tamaños
+ * de pool: muestra a partir de qué cantidad de conexiones deja de crecer el throughput. Las altas
+ * se reparten entre varios libros para que el límite sea el pool y no el bloqueo de una sola fila.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConnectionPoolLoadBenchmark {
+    
+    private static final long FIRST_BOOK_ID = 5_000_000L;
+    private static final int BOOKS = 64;
+    
+    @Param({"2", "4", "8", "16", "32"})
+    public int poolSize;
+    
+    @Param({"200"})
+    public int concurrency;
+    
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private List<HttpRequest> createReservations;
+    private HttpRequest listReservations;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.builder("bench_connection_pool")
+                .web(WebApplicationType.SERVLET)
+                .run("--server.port=0", "--spring.datasource.hikari.maximum-pool-size=" + poolSize);
+        
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setExternalId(FIRST_BOOK_ID + i);
+            book.setTitle("Libro " + i);
+            book.setPrice(new BigDecimal("11.00"));
+            book.setStockQuantity(10_000_000);
+            book.setAvailableQuantity(10_000_000);
+            book.setNew(true);
+            books.add(book);
+        }
+        context.getBean(BookRepository.class).saveAll(books);
+        User user = new User();
+        user.setName("Pool");
+        user.setEmail("pool@example.com");
+        Long userId = context.getBean(UserRepository.class).save(user).getId();
+        
+        String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/reservations";
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        createReservations = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            String body = "{\"userId\":" + userId + ",\"bookExternalId\":" + (FIRST_BOOK_ID + i)
+                    + ",\"rentalDays\":7,\"startDate\":\"" + LocalDate.now() + "\"}";
+            createReservations.add(HttpRequest.newBuilder(URI.create(base))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build());
+        }
+        listReservations = HttpRequest.newBuilder(URI.create(base + "/user/" + userId + "?limit=50")).build();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public int burst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = i % 2 == 0 ? createReservations.get((i / 2) % BOOKS) : listReservations;
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.libreria.controller;
+
+import com.example.libreria.BenchmarkContexts;
+import com.example.libreria.dto.ReservationRequestDTO;
+import com.example.libreria.model.Book;
+import com.example.libreria.model.User;
+import com.example.libreria.repository.BookRepository;
+import com.example.libreria.repository.UserRepository;
+import com.example.libreria.service.ReservationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga HTTP en ráfagas contra Tomcat: cada operación lanza {@code concurrency} peticiones
+ * simultáneas (listado de reservas de un usuario + consulta del usuario) y espera todas.
+ * El modo virtual solo tiene efecto compilando y ejecutando con Java 21 (-Pjava21).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WebTierLoadBenchmark {
+    
+    private static final Long BOOK_ID = 4_000_000L;
+    
+    @Param({"platform", "virtual"})
+    public String threading;
+    
+    @Param({"500"})
+    public int concurrency;
+    
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest listReservations;
+    private HttpRequest getUser;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "virtual".equals(threading)
+                ? BenchmarkContexts.startWeb("bench_web_tier", "virtual-threads")
+                : BenchmarkContexts.startWeb("bench_web_tier");
+        
+        Book book = new Book();
+        book.setExternalId(BOOK_ID);
+        book.setTitle("Ficciones");
+        book.setPrice(new BigDecimal("14.00"));
+        book.setStockQuantity(1_000);
+        book.setAvailableQuantity(1_000);
+        book.setNew(true);
+        context.getBean(BookRepository.class).save(book);
+        User user = new User();
+        user.setName("Carga");
+        user.setEmail("carga@example.com");
+        Long userId = context.getBean(UserRepository.class).save(user).getId();
+        ReservationService reservationService = context.getBean(ReservationService.class);
+        for (int i = 0; i < 100; i++) {
+            reservationService.createReservation(new ReservationRequestDTO(userId, BOOK_ID, 7, LocalDate.now()));
+        }
+        
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        listReservations = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/reservations/user/" + userId + "?limit=50")).build();
+        getUser = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/" + userId)).build();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public int burst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = i % 2 == 0 ? listReservations : getUser;
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.libreria.repository;
+
+import com.example.libreria.BenchmarkContexts;
+import com.example.libreria.model.Book;
+import com.example.libreria.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lecturas por clave de Book (con autores) y User, con y sin el perfil l2cache.
+ * Cada invocación abre su propia transacción, como una petición HTTP.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EntityReadBenchmark {
+    
+    private static final long FIRST_BOOK_ID = 1_000_000L;
+    
+    @Param({"false", "true"})
+    public boolean l2cache;
+    
+    @Param({"1000"})
+    public int books;
+    
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private UserRepository userRepository;
+    private TransactionTemplate readOnly;
+    private List<Long> userIds;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = l2cache
+                ? BenchmarkContexts.start("bench_entity_read", "l2cache")
+                : BenchmarkContexts.start("bench_entity_read");
+        bookRepository = context.getBean(BookRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        
+        List<Book> catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            Book book = new Book();
+            book.setExternalId(FIRST_BOOK_ID + i);
+            book.setTitle("Libro " + i);
+            book.setAuthorName(List.of("Autor " + i, "Coautora " + i));
+            book.setPrice(new BigDecimal("12.50"));
+            book.setStockQuantity(10);
+            book.setAvailableQuantity(10);
+            book.setNew(true);
+            catalog.add(book);
+        }
+        bookRepository.saveAll(catalog);
+        userIds = userRepository.findAll().stream().map(User::getId).toList();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public int findBookWithAuthors() {
+        long externalId = FIRST_BOOK_ID + ThreadLocalRandom.current().nextInt(books);
+        return readOnly.execute(status ->
+                bookRepository.findByExternalId(externalId).orElseThrow().getAuthorName().size());
+    }
+    
+    @Benchmark
+    public String findUser() {
+        Long id = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+        return readOnly.execute(status -> userRepository.findById(id).orElseThrow().getEmail());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.libreria.service;
+
+import com.example.libreria.BenchmarkContexts;
+import com.example.libreria.dto.BookSyncResultDTO;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sincronización completa del catálogo contra una API externa simulada en local (sin ETag).
+ * unchanged: todas las filas coinciden por huella; changed: cada respuesta cambia todos los precios.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookSyncBenchmark {
+    
+    @Param({"2000"})
+    public int catalogSize;
+    
+    @Param({"unchanged", "changed"})
+    public String catalog;
+    
+    private HttpServer server;
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        byte[][] responses = {renderCatalog("10.00"), renderCatalog("12.50")};
+        AtomicLong requests = new AtomicLong();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/books", exchange -> {
+            int variant = "changed".equals(catalog) ? (int) (requests.getAndIncrement() % 2) : 0;
+            byte[] body = responses[variant];
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        
+        String url = "http://localhost:" + server.getAddress().getPort() + "/books";
+        System.setProperty("external.api.books.url", url);
+        context = BenchmarkContexts.start("bench_book_sync");
+        bookService = context.getBean(BookService.class);
+        // Primera pasada fuera de la medición: inserta el catálogo
+        bookService.syncBooksFromExternalApi();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        server.stop(0);
+        System.clearProperty("external.api.books.url");
+    }
+    
+    @Benchmark
+    public BookSyncResultDTO syncBooksFromExternalApi() {
+        return bookService.syncBooksFromExternalApi();
+    }
+    
+    private byte[] renderCatalog(String price) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < catalogSize; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(3_000_000 + i)
+                    .append(",\"has_fulltext\":").append(i % 2 == 0)
+                    .append(",\"edition_count\":").append(i % 50)
+                    .append(",\"title\":\"Libro sincronizado ").append(i).append('"')
+                    .append(",\"author_name\":[\"Autor ").append(i % 300).append("\"]")
+                    .append(",\"first_publish_year\":").append(1900 + i % 120)
+                    .append(",\"price\":").append(price).append('}');
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.BookResponseDTO;
+import com.example.libreria.model.Book;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo de tarifas y conversión a DTO: código puro, sin Spring ni base de datos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+    
+    @Param({"1", "5"})
+    public int authors;
+    
+    private Book book;
+    private BigDecimal dailyRate;
+    private int rentalDays;
+    private long daysLate;
+    
+    @Setup
+    public void setUp() {
+        List<String> authorNames = new ArrayList<>();
+        for (int i = 0; i < authors; i++) {
+            authorNames.add("Autor " + i);
+        }
+        book = new Book();
+        book.setExternalId(258027L);
+        book.setTitle("The Lord of the Rings");
+        book.setAuthorName(authorNames);
+        book.setFirstPublishYear(1954);
+        book.setEditionCount(120);
+        book.setHasFulltext(true);
+        book.setPrice(new BigDecimal("15.99"));
+        book.setStockQuantity(10);
+        book.setAvailableQuantity(7);
+        dailyRate = book.getPrice();
+        rentalDays = 14;
+        daysLate = 3;
+    }
+    
+    @Benchmark
+    public BookResponseDTO convertBookToDTO() {
+        return BookService.convertToDTO(book);
+    }
+    
+    @Benchmark
+    public BigDecimal calculateTotalFee() {
+        return ReservationService.calculateTotalFee(dailyRate, rentalDays);
+    }
+    
+    @Benchmark
+    public BigDecimal calculateLateFee() {
+        return ReservationService.calculateLateFee(dailyRate, daysLate);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.libreria.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tarifas de un lote de devoluciones: BigDecimal reserva por reserva frente a centavos en arreglos primitivos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationFeeBenchmark {
+    
+    @Param({"1000", "10000"})
+    public int returns;
+    
+    private BigDecimal[] prices;
+    private long[] priceCents;
+    private int[] rentalDays;
+    private long[] daysLate;
+    private long[] lateFeeCents;
+    private long[] totalFeeCents;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        prices = new BigDecimal[returns];
+        priceCents = new long[returns];
+        rentalDays = new int[returns];
+        daysLate = new long[returns];
+        for (int i = 0; i < returns; i++) {
+            priceCents[i] = 500 + random.nextInt(5_000);
+            prices[i] = ReservationFeeCalculator.fromCents(priceCents[i]);
+            rentalDays[i] = 1 + random.nextInt(30);
+            daysLate[i] = random.nextInt(4) == 0 ? random.nextInt(20) : 0;
+        }
+        lateFeeCents = new long[returns];
+        totalFeeCents = new long[returns];
+    }
+    
+    @Benchmark
+    public void bigDecimalPerReservation(Blackhole blackhole) {
+        for (int i = 0; i < returns; i++) {
+            BigDecimal lateFee = ReservationService.calculateLateFee(prices[i], daysLate[i]);
+            blackhole.consume(ReservationService.calculateTotalFee(prices[i], rentalDays[i]).add(lateFee));
+        }
+    }
+    
+    @Benchmark
+    public long[] centsInOnePass() {
+        ReservationFeeCalculator.computeFees(priceCents, rentalDays, priceCents, daysLate, lateFeeCents, totalFeeCents);
+        return totalFeeCents;
+    }
+}
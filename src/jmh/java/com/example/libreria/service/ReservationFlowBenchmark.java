@@ -0,0 +1,99 @@
+package com.example.libreria.service;
+
+import com.example.libreria.BenchmarkContexts;
+import com.example.libreria.dto.ReservationRequestDTO;
+import com.example.libreria.dto.ReservationResponseDTO;
+import com.example.libreria.dto.ReturnBookRequestDTO;
+import com.example.libreria.model.Book;
+import com.example.libreria.model.User;
+import com.example.libreria.repository.BookRepository;
+import com.example.libreria.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alta y devolución de reservas contra H2 embebida, a través de los servicios transaccionales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationFlowBenchmark {
+    
+    private static final Long BOOK_ID = 2_000_000L;
+    private static final int STOCK = 10_000_000;
+    
+    private ConfigurableApplicationContext context;
+    private ReservationService reservationService;
+    private ReservationRequestDTO request;
+    private ReturnBookRequestDTO lateReturn;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("bench_reservation_flow");
+        reservationService = context.getBean(ReservationService.class);
+        
+        Book book = new Book();
+        book.setExternalId(BOOK_ID);
+        book.setTitle("Rayuela");
+        book.setPrice(new BigDecimal("18.50"));
+        book.setStockQuantity(STOCK);
+        book.setAvailableQuantity(STOCK);
+        book.setNew(true);
+        context.getBean(BookRepository.class).save(book);
+        
+        User user = new User();
+        user.setName("Benchmark");
+        user.setEmail("benchmark@example.com");
+        Long userId = context.getBean(UserRepository.class).save(user).getId();
+        
+        LocalDate start = LocalDate.now();
+        request = new ReservationRequestDTO(userId, BOOK_ID, 7, start);
+        // Devolución con tres días de demora: incluye el cálculo de multa
+        lateReturn = new ReturnBookRequestDTO(start.plusDays(10));
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public ReservationResponseDTO createReservation() {
+        return reservationService.createReservation(request);
+    }
+    
+    @Benchmark
+    public ReservationResponseDTO returnBook(ActiveReservation active) {
+        return reservationService.returnBook(active.id, lateReturn);
+    }
+    
+    // Cada devolución necesita una reserva activa propia; su alta queda fuera de la medición
+    @State(Scope.Thread)
+    public static class ActiveReservation {
+        
+        Long id;
+        
+        @Setup(Level.Invocation)
+        public void create(ReservationFlowBenchmark benchmark) {
+            id = benchmark.reservationService.createReservation(benchmark.request).getId();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.libreria.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    
+    public static final String BOOKS_CACHE = "books";
+    public static final String USER_SUMMARIES_CACHE = "userSummaries";
+    
+    @Bean
+    public CacheManager cacheManager(@Value("${books.cache.spec}") String booksCacheSpec,
+                                     @Value("${reservations.summary-cache.spec}") String summariesCacheSpec) {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(BOOKS_CACHE);
+        caffeineCacheManager.setCacheSpecification(booksCacheSpec);
+        caffeineCacheManager.registerCustomCache(USER_SUMMARIES_CACHE, Caffeine.from(summariesCacheSpec).build());
+        // Los put/evict se aplican al confirmar la transacción, nunca con datos sin commitear
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+    
+    public static Cache<Object, Object> nativeCache(CacheManager cacheManager, String name) {
+        org.springframework.cache.Cache cache = cacheManager.getCache(name);
+        if (cache instanceof TransactionAwareCacheDecorator decorator) {
+            cache = decorator.getTargetCache();
+        }
+        if (!(cache instanceof CaffeineCache caffeineCache)) {
+            throw new RuntimeException("Caché no encontrada: " + name);
+        }
+        return caffeineCache.getNativeCache();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.libreria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@Slf4j
+public class ConnectionPoolConfig {
+    
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    
+    // Tamaño del pool según los núcleos: núcleos * connections-per-core + spindles (fórmula de HikariCP).
+    // Un spring.datasource.hikari.maximum-pool-size explícito tiene prioridad, en cualquiera de sus formas
+    // relajadas (maximumPoolSize, SPRING_DATASOURCE_HIKARI_MAXIMUMPOOLSIZE...)
+    @Bean
+    public static BeanPostProcessor connectionPoolSizer(Environment environment) {
+        int connectionsPerCore = environment.getProperty("libreria.datasource.pool.connections-per-core", Integer.class, 2);
+        int spindles = environment.getProperty("libreria.datasource.pool.spindles", Integer.class, 1);
+        boolean explicitSize = Binder.get(environment).bind(MAXIMUM_POOL_SIZE, Integer.class).isBound();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource hikari && !explicitSize) {
+                    int cores = Runtime.getRuntime().availableProcessors();
+                    hikari.setMaximumPoolSize(poolSize(cores, connectionsPerCore, spindles));
+                    log.info("Connection pool sized to {} connections for {} cores", hikari.getMaximumPoolSize(), cores);
+                }
+                return bean;
+            }
+        };
+    }
+    
+    static int poolSize(int cores, int connectionsPerCore, int spindles) {
+        return Math.max(1, cores * connectionsPerCore + spindles);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.libreria.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class DataSourceConcurrencyConfig {
+    
+    // libreria.datasource.max-concurrent <= 0 deja el DataSource tal cual
+    @Bean
+    public static DataSourceWrapperPostProcessor dataSourceConcurrencyLimiter(Environment environment) {
+        int maxConcurrent = environment.getProperty("libreria.datasource.max-concurrent", Integer.class, 0);
+        Duration acquireTimeout = environment.getProperty("libreria.datasource.acquire-timeout", Duration.class, Duration.ofSeconds(5));
+        return new DataSourceWrapperPostProcessor(DataSourceWrapperPostProcessor.CONCURRENCY_LIMIT_ORDER) {
+            @Override
+            DataSource wrap(DataSource dataSource) {
+                if (maxConcurrent > 0 && !(dataSource instanceof ConcurrencyLimitingDataSource)) {
+                    return new ConcurrencyLimitingDataSource(dataSource, maxConcurrent, acquireTimeout);
+                }
+                return dataSource;
+            }
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.libreria.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+// Base de los envoltorios del DataSource. El orden de cada uno está fijado acá: el de menor orden se aplica
+// primero y queda más adentro. Réplica de lectura → log de consultas lentas → límite de concurrencia, de modo
+// que el log y el límite cubren también las conexiones de la réplica.
+// Los @Bean deben declarar este tipo (no BeanPostProcessor) para que Spring vea el orden antes de crearlos
+abstract class DataSourceWrapperPostProcessor implements BeanPostProcessor, Ordered {
+    
+    static final int READ_REPLICA_ORDER = Ordered.HIGHEST_PRECEDENCE;
+    static final int SLOW_QUERY_LOG_ORDER = READ_REPLICA_ORDER + 1;
+    static final int CONCURRENCY_LIMIT_ORDER = READ_REPLICA_ORDER + 2;
+    
+    private final int order;
+    
+    DataSourceWrapperPostProcessor(int order) {
+        this.order = order;
+    }
+    
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource dataSource ? wrap(dataSource) : bean;
+    }
+    
+    // Devuelve el mismo DataSource si el envoltorio está desactivado o ya se aplicó
+    abstract DataSource wrap(DataSource dataSource);
+    
+    @Override
+    public int getOrder() {
+        return order;
+    }
+}
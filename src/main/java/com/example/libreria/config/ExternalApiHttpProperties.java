@@ -0,0 +1,29 @@
+package com.example.libreria.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// Cliente HTTP usado por ExternalBookService (external.api.http.*)
+@Data
+@ConfigurationProperties(prefix = "external.api.http")
+public class ExternalApiHttpProperties {
+    
+    public enum Client {
+        // HttpURLConnection: una conexión nueva por petición, sin pool
+        SIMPLE,
+        // java.net.http.HttpClient: pool interno y HTTP/2 cuando el servidor lo ofrece
+        JDK,
+        // Apache HttpClient 5: pool configurable por ruta, keep-alive y descompresión gzip
+        APACHE
+    }
+    
+    private Client client = Client.APACHE;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private int maxConnections = 50;
+    private int maxConnectionsPerRoute = 20;
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private boolean gzip = true;
+}
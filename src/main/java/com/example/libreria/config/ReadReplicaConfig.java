@@ -0,0 +1,72 @@
+package com.example.libreria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Configuration
+public class ReadReplicaConfig {
+    
+    static final String REPLICA_PREFIX = "libreria.datasource.replica";
+    
+    // Sin libreria.datasource.replica.url todo va al primario. Es el envoltorio más interno del DataSource
+    // (DataSourceWrapperPostProcessor.READ_REPLICA_ORDER) para que los demás también cubran la réplica.
+    // El pool de la réplica no es un bean: lo cierra este post-processor al cerrarse el contexto
+    @Bean
+    public static DataSourceWrapperPostProcessor readReplicaRouter(Environment environment) {
+        return new ReadReplicaRouter(environment);
+    }
+    
+    @Slf4j
+    private static final class ReadReplicaRouter extends DataSourceWrapperPostProcessor implements DisposableBean {
+        
+        private final Environment environment;
+        private final List<HikariDataSource> replicas = new CopyOnWriteArrayList<>();
+        
+        private ReadReplicaRouter(Environment environment) {
+            super(READ_REPLICA_ORDER);
+            this.environment = environment;
+        }
+        
+        @Override
+        DataSource wrap(DataSource primary) {
+            if (!(primary instanceof ReadReplicaDataSource)
+                    && StringUtils.hasText(environment.getProperty(REPLICA_PREFIX + ".url"))) {
+                HikariDataSource replica = replica();
+                replicas.add(replica);
+                log.info("Routing read-only transactions to replica {}", replica.getJdbcUrl());
+                return new ReadReplicaDataSource(primary, replica);
+            }
+            return primary;
+        }
+        
+        @Override
+        public void destroy() {
+            replicas.forEach(HikariDataSource::close);
+            replicas.clear();
+        }
+        
+        // url, username, password y driver-class-name como spring.datasource; el pool en .hikari.*
+        private HikariDataSource replica() {
+            Binder binder = Binder.get(environment);
+            DataSourceProperties properties = binder.bind(REPLICA_PREFIX, DataSourceProperties.class).get();
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            binder.bind(REPLICA_PREFIX + ".hikari", Bindable.ofInstance(replica));
+            if (replica.getPoolName() == null) {
+                replica.setPoolName("libreria-replica");
+            }
+            return replica;
+        }
+    }
+}
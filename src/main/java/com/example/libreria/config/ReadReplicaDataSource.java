@@ -0,0 +1,25 @@
+package com.example.libreria.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Envía las transacciones de solo lectura a una réplica. La conexión física se pide recién en la primera
+ * sentencia, cuando Spring ya la marcó como read-only por {@code @Transactional(readOnly = true)}; el resto
+ * (y cualquier método de solo lectura que se una a una transacción de escritura) va al primario.
+ */
+public class ReadReplicaDataSource extends LazyConnectionDataSourceProxy {
+    
+    private final DataSource replica;
+    
+    public ReadReplicaDataSource(DataSource primary, DataSource replica) {
+        super(primary);
+        setReadOnlyDataSource(replica);
+        this.replica = replica;
+    }
+    
+    public DataSource getReplica() {
+        return replica;
+    }
+}
@@ -1,27 +1,113 @@
 package com.example.libreria.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+
 @Configuration
+@EnableConfigurationProperties(ExternalApiHttpProperties.class)
 public class RestTemplateConfig {
     
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(clientHttpRequestFactory());
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder, ClientHttpRequestFactory clientHttpRequestFactory) {
+        // El builder registra la observación http.client.requests (timers por URI plantilla)
+        RestTemplate restTemplate = restTemplateBuilder.build();
+        restTemplate.setRequestFactory(clientHttpRequestFactory);
         return restTemplate;
     }
     
     @Bean
-    public ClientHttpRequestFactory clientHttpRequestFactory() {
+    public ClientHttpRequestFactory clientHttpRequestFactory(ExternalApiHttpProperties properties) {
+        return switch (properties.getClient()) {
+            case SIMPLE -> simpleRequestFactory(properties);
+            case JDK -> jdkRequestFactory(properties);
+            case APACHE -> apacheRequestFactory(properties);
+        };
+    }
+    
+    private static ClientHttpRequestFactory simpleRequestFactory(ExternalApiHttpProperties properties) {
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(5000);
-        factory.setReadTimeout(5000);
+        factory.setConnectTimeout(properties.getConnectTimeout());
+        factory.setReadTimeout(properties.getReadTimeout());
+        return factory;
+    }
+    
+    // El JDK no expone tamaño de pool ni descompresión: max-connections y gzip no aplican
+    private static ClientHttpRequestFactory jdkRequestFactory(ExternalApiHttpProperties properties) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(properties.getConnectTimeout())
+                .version(HttpClient.Version.HTTP_2)
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(properties.getReadTimeout());
         return factory;
     }
+    
+    private static ClientHttpRequestFactory apacheRequestFactory(ExternalApiHttpProperties properties) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                .build();
+        TimeValue keepAlive = TimeValue.of(properties.getKeepAlive());
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                // Se reutiliza la conexión hasta keep-alive aunque el servidor no envíe Keep-Alive
+                .setKeepAliveStrategy((response, context) -> keepAlive)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive);
+        if (!properties.isGzip()) {
+            builder.disableContentCompression();
+        }
+        CloseableHttpClient httpClient = builder.build();
+        // La fábrica cierra el cliente (y su pool) al destruirse el bean
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+    
+    // Llamadas a la API externa fuera del hilo de la petición: un hilo virtual por llamada con
+    // spring.threads.virtual.enabled en Java 21, o un pool de hilos de plataforma del mismo tamaño que el
+    // límite de llamadas simultáneas (external.api.books.max-parallelism), sin hilos ociosos ni por debajo
+    @Bean
+    public AsyncTaskExecutor externalApiExecutor(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("external-api-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        int maxParallelism = environment.getProperty("external.api.books.max-parallelism", Integer.class, 8);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("external-api-");
+        executor.setCorePoolSize(maxParallelism);
+        executor.setMaxPoolSize(maxParallelism);
+        return executor;
+    }
 }
 
@@ -0,0 +1,10 @@
+package com.example.libreria.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Habilita las tareas @Scheduled (sincronización periódica del catálogo)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,269 @@
+package com.example.libreria.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cada sentencia JDBC, acumula sus agregados en {@link SqlStatementStats} y escribe una línea JSON
+ * (logger {@code libreria.sql.slow}) solo cuando supera el umbral. El método de servicio que la originó se
+ * busca en la pila únicamente para las sentencias lentas. En las consultas el tiempo y las filas incluyen
+ * la lectura del ResultSet hasta que se cierra.
+ */
+@Slf4j(topic = "libreria.sql.slow")
+public class SlowQueryLoggingDataSource extends DelegatingDataSource {
+    
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    private static final String APPLICATION_PACKAGE = "com.example.libreria.";
+    
+    private final SqlStatementStats stats;
+    private final long thresholdNanos;
+    
+    public SlowQueryLoggingDataSource(DataSource targetDataSource, SqlStatementStats stats, Duration threshold) {
+        super(targetDataSource);
+        this.stats = stats;
+        this.thresholdNanos = threshold.toNanos();
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+    
+    private void finish(String sql, long nanos, int binds, long rows) {
+        if (sql == null) {
+            return;
+        }
+        boolean slow = nanos >= thresholdNanos;
+        stats.record(sql, nanos, rows, slow);
+        if (slow && log.isWarnEnabled()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("statement", sql);
+            entry.put("binds", binds);
+            entry.put("rows", rows);
+            entry.put("durationMs", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+            entry.put("caller", caller());
+            try {
+                log.warn(JSON.writeValueAsString(entry));
+            } catch (JsonProcessingException e) {
+                log.warn("Could not serialize slow query entry for {}: {}", sql, e.getMessage());
+            }
+        }
+    }
+    
+    // Primer método de la aplicación en la pila, sin este proxy ni los proxies de Spring (CGLIB) o Hibernate
+    private static String caller() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !frame.getClassName().equals(SlowQueryLoggingDataSource.class.getName())
+                        && !frame.getClassName().startsWith(SlowQueryLoggingDataSource.class.getName() + "$")
+                        && !frame.getClassName().contains("$$")
+                        && !frame.getClassName().contains("$HibernateProxy"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse(null));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(SlowQueryLoggingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+    
+    private final class ConnectionHandler implements InvocationHandler {
+        
+        private final Connection target;
+        
+        private ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SlowQueryLoggingDataSource.invoke(target, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> proxy(PreparedStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+                case "prepareCall" -> proxy(CallableStatement.class, new StatementHandler((Statement) result, (String) args[0]));
+                case "createStatement" -> proxy(Statement.class, new StatementHandler((Statement) result, null));
+                default -> result;
+            };
+        }
+    }
+    
+    // Un Statement lo usa un solo hilo a la vez: el estado no necesita sincronización
+    private final class StatementHandler implements InvocationHandler {
+        
+        private final Statement target;
+        private final String sql;
+        private String batchSql;
+        private int binds;
+        private int batchedBinds;
+        private QueryExecution pending;
+        
+        private StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            Class<?> declaringClass = method.getDeclaringClass();
+            if (name.startsWith("set") && (declaringClass == PreparedStatement.class || declaringClass == CallableStatement.class)) {
+                binds++;
+                return SlowQueryLoggingDataSource.invoke(target, method, args);
+            }
+            switch (name) {
+                case "addBatch" -> {
+                    if (args != null && args.length == 1) {
+                        batchSql = (String) args[0];
+                    }
+                    batchedBinds += binds;
+                    binds = 0;
+                }
+                case "clearBatch" -> {
+                    batchSql = null;
+                    batchedBinds = 0;
+                }
+                case "executeBatch", "executeLargeBatch" -> {
+                    return executeBatch(method, args);
+                }
+                case "executeQuery", "execute", "executeUpdate", "executeLargeUpdate" -> {
+                    return execute(method, args);
+                }
+                case "getResultSet" -> {
+                    Object resultSet = SlowQueryLoggingDataSource.invoke(target, method, args);
+                    return pending != null && resultSet != null ? pending.track((ResultSet) resultSet) : resultSet;
+                }
+                case "close" -> completePending();
+                default -> {
+                }
+            }
+            return SlowQueryLoggingDataSource.invoke(target, method, args);
+        }
+        
+        private Object execute(Method method, Object[] args) throws Throwable {
+            completePending();
+            String statement = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            int executionBinds = binds;
+            binds = 0;
+            long start = System.nanoTime();
+            Object result = SlowQueryLoggingDataSource.invoke(target, method, args);
+            switch (method.getName()) {
+                case "executeQuery" -> {
+                    pending = new QueryExecution(statement, executionBinds, start);
+                    return pending.track((ResultSet) result);
+                }
+                case "execute" -> {
+                    if ((Boolean) result) {
+                        // La consulta termina cuando se cierre el ResultSet que se pida con getResultSet()
+                        pending = new QueryExecution(statement, executionBinds, start);
+                    } else {
+                        finish(statement, System.nanoTime() - start, executionBinds, Math.max(target.getUpdateCount(), 0));
+                    }
+                }
+                default -> finish(statement, System.nanoTime() - start, executionBinds, ((Number) result).longValue());
+            }
+            return result;
+        }
+        
+        private Object executeBatch(Method method, Object[] args) throws Throwable {
+            completePending();
+            String statement = sql != null ? sql : batchSql;
+            int executionBinds = batchedBinds;
+            batchSql = null;
+            batchedBinds = 0;
+            long start = System.nanoTime();
+            Object result = SlowQueryLoggingDataSource.invoke(target, method, args);
+            long rows = 0;
+            if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            finish(statement, System.nanoTime() - start, executionBinds, rows);
+            return result;
+        }
+        
+        private void completePending() {
+            if (pending != null) {
+                pending.complete();
+            }
+        }
+        
+        // Consulta en curso: se registra al cerrar su ResultSet, o el Statement si nadie lo cierra
+        private final class QueryExecution implements InvocationHandler {
+            
+            private final String statement;
+            private final int executionBinds;
+            private final long start;
+            private ResultSet resultSet;
+            private long rows;
+            
+            private QueryExecution(String statement, int executionBinds, long start) {
+                this.statement = statement;
+                this.executionBinds = executionBinds;
+                this.start = start;
+            }
+            
+            private ResultSet track(ResultSet resultSet) {
+                this.resultSet = resultSet;
+                return proxy(ResultSet.class, this);
+            }
+            
+            private void complete() {
+                if (pending == this) {
+                    pending = null;
+                    finish(statement, System.nanoTime() - start, executionBinds, rows);
+                }
+            }
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("close".equals(method.getName())) {
+                    complete();
+                }
+                Object result = SlowQueryLoggingDataSource.invoke(resultSet, method, args);
+                if ("next".equals(method.getName()) && (Boolean) result) {
+                    rows++;
+                }
+                return result;
+            }
+        }
+    }
+}
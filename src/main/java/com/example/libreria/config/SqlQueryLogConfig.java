@@ -0,0 +1,41 @@
+package com.example.libreria.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class SqlQueryLogConfig {
+    
+    // libreria.sql.stats.max-statements acota cuántas sentencias distintas se agregan
+    @Bean
+    public static SqlStatementStats sqlStatementStats(Environment environment) {
+        return new SqlStatementStats(environment.getProperty("libreria.sql.stats.max-statements", Integer.class, 500));
+    }
+    
+    // Desactivado por defecto: el proxy JDBC mide todas las sentencias, no solo las lentas. En
+    // SlowQueryLoggingBenchmark una lectura por clave contra H2 pasa de 2,12 a 2,66 µs/op con él (+25%).
+    // libreria.sql.slow-query.enabled=true (o el perfil sqllog) lo activa para diagnosticar
+    @Bean
+    public static DataSourceWrapperPostProcessor slowQueryLogger(Environment environment, SqlStatementStats sqlStatementStats) {
+        boolean enabled = environment.getProperty("libreria.sql.slow-query.enabled", Boolean.class, false);
+        Duration threshold = environment.getProperty("libreria.sql.slow-query.threshold", Duration.class, Duration.ofMillis(200));
+        return new DataSourceWrapperPostProcessor(DataSourceWrapperPostProcessor.SLOW_QUERY_LOG_ORDER) {
+            @Override
+            DataSource wrap(DataSource dataSource) {
+                if (enabled && !(dataSource instanceof SlowQueryLoggingDataSource)) {
+                    return new SlowQueryLoggingDataSource(dataSource, sqlStatementStats, threshold);
+                }
+                return dataSource;
+            }
+        };
+    }
+    
+    @Bean
+    public SqlStatementStatsEndpoint sqlStatementStatsEndpoint(SqlStatementStats sqlStatementStats) {
+        return new SqlStatementStatsEndpoint(sqlStatementStats);
+    }
+}
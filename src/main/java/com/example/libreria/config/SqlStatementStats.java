@@ -0,0 +1,83 @@
+package com.example.libreria.config;
+
+import com.example.libreria.dto.SqlStatementStatsDTO;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agregados por sentencia SQL: ejecuciones, tiempo total y máximo, filas y ejecuciones lentas.
+ * La cantidad de sentencias distintas está acotada; con el mapa lleno las nuevas solo se cuentan como descartadas.
+ */
+public class SqlStatementStats {
+    
+    private final int maxStatements;
+    private final Map<String, Entry> statements = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    
+    public SqlStatementStats(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+    
+    public void record(String sql, long nanos, long rows, boolean slow) {
+        Entry entry = statements.get(sql);
+        if (entry == null) {
+            if (statements.size() >= maxStatements) {
+                dropped.increment();
+                return;
+            }
+            entry = statements.computeIfAbsent(sql, key -> new Entry());
+        }
+        entry.executions.increment();
+        entry.totalNanos.add(nanos);
+        entry.maxNanos.accumulate(nanos);
+        if (rows > 0) {
+            entry.rows.add(rows);
+        }
+        if (slow) {
+            entry.slowExecutions.increment();
+        }
+    }
+    
+    // Las sentencias con más tiempo acumulado primero
+    public List<SqlStatementStatsDTO> snapshot() {
+        return statements.entrySet().stream()
+                .map(statement -> statement.getValue().toDTO(statement.getKey()))
+                .sorted(Comparator.comparingDouble(SqlStatementStatsDTO::getTotalMs).reversed())
+                .toList();
+    }
+    
+    public long getDropped() {
+        return dropped.sum();
+    }
+    
+    public void reset() {
+        statements.clear();
+        dropped.reset();
+    }
+    
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    
+    private static final class Entry {
+        
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slowExecutions = new LongAdder();
+        
+        private SqlStatementStatsDTO toDTO(String sql) {
+            long count = executions.sum();
+            long total = totalNanos.sum();
+            return new SqlStatementStatsDTO(sql, count, toMillis(total), count > 0 ? toMillis(total / count) : 0,
+                    toMillis(maxNanos.get()), rows.sum(), slowExecutions.sum());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.libreria.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// GET /actuator/sqlstats: agregados por sentencia, las más costosas primero; DELETE los reinicia
+@Endpoint(id = "sqlstats")
+public class SqlStatementStatsEndpoint {
+    
+    private final SqlStatementStats stats;
+    
+    public SqlStatementStatsEndpoint(SqlStatementStats stats) {
+        this.stats = stats;
+    }
+    
+    @ReadOperation
+    public Map<String, Object> statements() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("droppedStatements", stats.getDropped());
+        report.put("statements", stats.snapshot());
+        return report;
+    }
+    
+    @DeleteOperation
+    public void reset() {
+        stats.reset();
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.libreria.controller;
 
+import com.example.libreria.dto.BookFilterDTO;
 import com.example.libreria.dto.BookResponseDTO;
+import com.example.libreria.dto.BookSyncJobDTO;
+import com.example.libreria.dto.CacheStatsDTO;
+import com.example.libreria.dto.CursorPageDTO;
 import com.example.libreria.service.BookService;
+import com.example.libreria.service.BookSyncJobService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/books")
@@ -14,16 +19,25 @@ import java.util.List;
 public class BookController {
     
     private final BookService bookService;
+    private final BookSyncJobService bookSyncJobService;
     
+    // La sincronización corre en segundo plano; el avance se consulta con el ID del trabajo
     @PostMapping("/sync")
-    public ResponseEntity<String> syncBooks() {
-        bookService.syncBooksFromExternalApi();
-        return ResponseEntity.ok("Libros sincronizados exitosamente desde la API externa");
+    public ResponseEntity<BookSyncJobDTO> syncBooks() {
+        BookSyncJobDTO job = bookSyncJobService.startSync("api");
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/books/sync/" + job.getJobId()))
+                .body(job);
+    }
+    
+    @GetMapping("/sync/{jobId}")
+    public ResponseEntity<BookSyncJobDTO> getSyncJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(bookSyncJobService.getJob(jobId));
     }
     
     @GetMapping
-    public ResponseEntity<List<BookResponseDTO>> getAllBooks() {
-        List<BookResponseDTO> books = bookService.getAllBooks();
+    public ResponseEntity<CursorPageDTO<BookResponseDTO>> getAllBooks(BookFilterDTO filter) {
+        CursorPageDTO<BookResponseDTO> books = bookService.searchBooks(filter);
         return ResponseEntity.ok(books);
     }
     
@@ -33,6 +47,11 @@ public class BookController {
         return ResponseEntity.ok(book);
     }
     
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStatsDTO> getCacheStats() {
+        return ResponseEntity.ok(bookService.getCacheStats());
+    }
+    
     @PutMapping("/{externalId}/stock")
     public ResponseEntity<BookResponseDTO> updateStock(
             @PathVariable Long externalId,
@@ -1,16 +1,21 @@
 package com.example.libreria.controller;
 
+import com.example.libreria.dto.CursorPageDTO;
+import com.example.libreria.dto.ReservationBatchRequestDTO;
+import com.example.libreria.dto.ReservationBatchResultDTO;
 import com.example.libreria.dto.ReservationRequestDTO;
 import com.example.libreria.dto.ReservationResponseDTO;
+import com.example.libreria.dto.ReturnBatchRequestDTO;
+import com.example.libreria.dto.ReturnBatchResultDTO;
 import com.example.libreria.dto.ReturnBookRequestDTO;
 import com.example.libreria.service.ReservationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/reservations")
@@ -26,6 +31,21 @@ public class ReservationController {
         return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
     }
     
+    // Resultado por elemento: los que fallan no impiden crear los demás
+    @PostMapping("/batch")
+    public ResponseEntity<ReservationBatchResultDTO> createReservations(
+            @Valid @RequestBody ReservationBatchRequestDTO requestDTO) {
+        ReservationBatchResultDTO result = reservationService.createReservations(requestDTO.getReservations());
+        return ResponseEntity.ok(result);
+    }
+    
+    @PostMapping("/batch/return")
+    public ResponseEntity<ReturnBatchResultDTO> returnBooks(
+            @Valid @RequestBody ReturnBatchRequestDTO requestDTO) {
+        ReturnBatchResultDTO result = reservationService.returnBooks(requestDTO.getReservationIds(), requestDTO.getReturnDate());
+        return ResponseEntity.ok(result);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ReservationResponseDTO> getReservationById(@PathVariable Long id) {
         ReservationResponseDTO reservation = reservationService.getReservationById(id);
@@ -33,26 +53,41 @@ public class ReservationController {
     }
     
     @GetMapping
-    public ResponseEntity<List<ReservationResponseDTO>> getAllReservations() {
-        List<ReservationResponseDTO> reservations = reservationService.getAllReservations();
+    public ResponseEntity<CursorPageDTO<ReservationResponseDTO>> getAllReservations(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        CursorPageDTO<ReservationResponseDTO> reservations = reservationService.getAllReservations(after, limit);
         return ResponseEntity.ok(reservations);
     }
     
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportReservations() {
+        StreamingResponseBody body = reservationService::exportReservations;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<ReservationResponseDTO>> getReservationsByUserId(@PathVariable Long userId) {
-        List<ReservationResponseDTO> reservations = reservationService.getReservationsByUserId(userId);
+    public ResponseEntity<CursorPageDTO<ReservationResponseDTO>> getReservationsByUserId(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        CursorPageDTO<ReservationResponseDTO> reservations = reservationService.getReservationsByUserId(userId, after, limit);
         return ResponseEntity.ok(reservations);
     }
     
     @GetMapping("/active")
-    public ResponseEntity<List<ReservationResponseDTO>> getActiveReservations() {
-        List<ReservationResponseDTO> reservations = reservationService.getActiveReservations();
+    public ResponseEntity<CursorPageDTO<ReservationResponseDTO>> getActiveReservations(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        CursorPageDTO<ReservationResponseDTO> reservations = reservationService.getActiveReservations(after, limit);
         return ResponseEntity.ok(reservations);
     }
     
     @GetMapping("/overdue")
-    public ResponseEntity<List<ReservationResponseDTO>> getOverdueReservations() {
-        List<ReservationResponseDTO> reservations = reservationService.getOverdueReservations();
+    public ResponseEntity<CursorPageDTO<ReservationResponseDTO>> getOverdueReservations(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        CursorPageDTO<ReservationResponseDTO> reservations = reservationService.getOverdueReservations(after, limit);
         return ResponseEntity.ok(reservations);
     }
     
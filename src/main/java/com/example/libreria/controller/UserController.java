@@ -1,7 +1,9 @@
 package com.example.libreria.controller;
 
 import com.example.libreria.dto.UserRequestDTO;
+import com.example.libreria.dto.UserReservationSummaryDTO;
 import com.example.libreria.dto.UserResponseDTO;
+import com.example.libreria.service.ReservationService;
 import com.example.libreria.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +19,7 @@ import java.util.List;
 public class UserController {
     
     private final UserService userService;
+    private final ReservationService reservationService;
     
     @PostMapping
     public ResponseEntity<UserResponseDTO> createUser(@Valid @RequestBody UserRequestDTO requestDTO) {
@@ -30,6 +33,11 @@ public class UserController {
         return ResponseEntity.ok(userService.getUserById(id));
     }
     
+    @GetMapping("/{id}/summary")
+    public ResponseEntity<UserReservationSummaryDTO> getUserSummary(@PathVariable Long id) {
+        return ResponseEntity.ok(reservationService.getUserSummary(id));
+    }
+    
     @GetMapping
     public ResponseEntity<List<UserResponseDTO>> getAllUsers() {
         return ResponseEntity.ok(userService.getAllUsers());
@@ -0,0 +1,28 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFilterDTO {
+    
+    private String author;
+    private Integer minYear;
+    private Integer maxYear;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Boolean inStock;
+    
+    // Orden: externalId, title o price; dirección asc o desc
+    private String sort = "externalId";
+    private String direction = "asc";
+    
+    // Cursor opaco devuelto como nextCursor en la página anterior
+    private String after;
+    private Integer limit;
+}
@@ -0,0 +1,29 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSyncJobDTO {
+    
+    private String jobId;
+    private JobStatus status;
+    private String trigger;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    // Bloques ya confirmados, cada uno en su propia transacción
+    private int committedChunks;
+    // Bloque (desde 1) que se estaba leyendo o guardando cuando falló el trabajo; null si no falló
+    private Integer failedChunk;
+    private BookSyncResultDTO result;
+    private String error;
+    
+    public enum JobStatus {
+        RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSyncResultDTO {
+    
+    private int created;
+    private int updated;
+    private int unchanged;
+    private int processed;
+    private long durationMs;
+    private double rowsPerSecond;
+    private boolean notModified;
+}
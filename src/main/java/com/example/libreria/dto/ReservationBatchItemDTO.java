@@ -0,0 +1,16 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationBatchItemDTO {
+    
+    private int index;
+    private boolean success;
+    private ReservationResponseDTO reservation;
+    private String error;
+}
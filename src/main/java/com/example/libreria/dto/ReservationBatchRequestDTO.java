@@ -0,0 +1,20 @@
+package com.example.libreria.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationBatchRequestDTO {
+    
+    @NotEmpty(message = "El lote debe contener al menos una reserva")
+    @Size(max = 500, message = "El lote no puede superar las 500 reservas")
+    private List<@Valid ReservationRequestDTO> reservations;
+}
@@ -0,0 +1,18 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationBatchResultDTO {
+    
+    private int requested;
+    private int created;
+    private int failed;
+    private List<ReservationBatchItemDTO> results;
+}
@@ -0,0 +1,24 @@
+package com.example.libreria.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReturnBatchRequestDTO {
+    
+    @NotEmpty(message = "El lote debe contener al menos una reserva")
+    @Size(max = 5000, message = "El lote no puede superar las 5000 devoluciones")
+    private List<@NotNull(message = "El ID de la reserva es obligatorio") Long> reservationIds;
+    
+    @NotNull(message = "La fecha de devolución es obligatoria")
+    private LocalDate returnDate;
+}
@@ -0,0 +1,20 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReturnBatchResultDTO {
+    
+    private int requested;
+    private int returned;
+    private int failed;
+    private BigDecimal totalLateFees;
+    private List<ReservationBatchItemDTO> results;
+}
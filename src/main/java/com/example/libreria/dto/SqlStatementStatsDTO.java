@@ -0,0 +1,19 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlStatementStatsDTO {
+    
+    private String statement;
+    private long executions;
+    private double totalMs;
+    private double meanMs;
+    private double maxMs;
+    private long rows;
+    private long slowExecutions;
+}
@@ -0,0 +1,21 @@
+package com.example.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserReservationSummaryDTO {
+    
+    private Long userId;
+    private long activeReservations;
+    private long overdueReservations;
+    private BigDecimal totalSpent;
+    private BigDecimal totalLateFees;
+    private LocalDate lastActivityDate;
+}
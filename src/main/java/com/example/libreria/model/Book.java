@@ -3,17 +3,34 @@ package com.example.libreria.model;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.springframework.data.domain.Persistable;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        // Índices para el catálogo paginado por keyset: (campo de orden, external_id)
+        @Index(name = "idx_books_title", columnList = "title, external_id"),
+        @Index(name = "idx_books_price", columnList = "price, external_id"),
+        @Index(name = "idx_books_first_publish_year", columnList = "first_publish_year"),
+        @Index(name = "idx_books_available_quantity", columnList = "available_quantity")
+})
+// Solo se actualizan las columnas modificadas: un update de catálogo no pisa available_quantity
+@DynamicUpdate
+// Región de segundo nivel, activa solo con el perfil l2cache. Los UPDATE masivos de stock vacían la región
+// completa en cada reserva y devolución: rinde en catálogos de mucha lectura y poca rotación
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class Book {
+public class Book implements Persistable<Long> {
     
     @Id
     @Column(name = "external_id", unique = true)
@@ -22,9 +39,13 @@ public class Book {
     @Column(nullable = false)
     private String title;
     
+    // Los autores de una página del catálogo se traen en un único SELECT ... WHERE book_id IN (...)
     @ElementCollection
-    @CollectionTable(name = "book_authors", joinColumns = @JoinColumn(name = "book_id"))
+    @CollectionTable(name = "book_authors", joinColumns = @JoinColumn(name = "book_id"),
+            indexes = @Index(name = "idx_book_authors_book_id", columnList = "book_id"))
     @Column(name = "author_name")
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<String> authorName;
     
     @Column(name = "first_publish_year")
@@ -39,11 +60,31 @@ public class Book {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
     
+    // Huella SHA-256 de los datos que vienen de la API externa
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
     // Campos adicionales para inventario
     @Column(name = "stock_quantity", nullable = false)
     private Integer stockQuantity = 0;
     
     @Column(name = "available_quantity", nullable = false)
     private Integer availableQuantity = 0;
+    
+    // Permite insertar libros nuevos sin el SELECT previo del merge (el ID es asignado)
+    @Transient
+    @EqualsAndHashCode.Exclude
+    private boolean isNew = false;
+    
+    @Override
+    public Long getId() {
+        return externalId;
+    }
+    
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
 }
 
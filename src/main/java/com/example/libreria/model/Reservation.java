@@ -10,14 +10,21 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_user_id", columnList = "user_id"),
+        @Index(name = "idx_reservations_book_external_id", columnList = "book_external_id"),
+        // Barrido de reservas vencidas: WHERE status = 'ACTIVE' AND expected_return_date < hoy
+        @Index(name = "idx_reservations_status_expected_return", columnList = "status, expected_return_date")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Reservation {
     
+    // Secuencia con bloques de 50 IDs: a diferencia de IDENTITY permite agrupar los INSERT en batches JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservations_seq")
+    @SequenceGenerator(name = "reservations_seq", sequenceName = "reservations_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -6,13 +6,20 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        // Búsqueda por email y unicidad en un único índice
+        @Index(name = "idx_users_email", columnList = "email", unique = true)
+})
+// Región de segundo nivel, activa solo con el perfil l2cache
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,7 +35,7 @@ public class User {
     
     @NotBlank(message = "El email es obligatorio")
     @Email(message = "El email debe ser válido")
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
     
     @Column(name = "phone_number")
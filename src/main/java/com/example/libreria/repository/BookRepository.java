@@ -1,16 +1,65 @@
 package com.example.libreria.repository;
 
 import com.example.libreria.model.Book;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
     
-    Optional<Book> findByExternalId(Long externalId);
+    // externalId es la clave primaria: se resuelve con find() y puede servirse desde la caché de segundo nivel
+    default Optional<Book> findByExternalId(Long externalId) {
+        return findById(externalId);
+    }
     
     boolean existsByExternalId(Long externalId);
+    
+    @EntityGraph(attributePaths = "authorName")
+    List<Book> findByExternalIdIn(Collection<Long> externalIds);
+    
+    @Query("SELECT b.externalId AS externalId, b.contentHash AS contentHash FROM Book b WHERE b.externalId IN :externalIds")
+    List<ContentHash> findContentHashesByExternalIdIn(@Param("externalIds") Collection<Long> externalIds);
+    
+    // Decrementos/incrementos atómicos: la condición la evalúa la base, sin leer el libro ni bloquearlo
+    @Modifying
+    @Query("UPDATE Book b SET b.availableQuantity = b.availableQuantity - 1 " +
+           "WHERE b.externalId = :externalId AND b.availableQuantity > 0")
+    int decrementAvailableQuantity(@Param("externalId") Long externalId);
+    
+    // Reserva varios ejemplares de una vez; no toca nada si no alcanzan
+    @Modifying
+    @Query("UPDATE Book b SET b.availableQuantity = b.availableQuantity - :quantity " +
+           "WHERE b.externalId = :externalId AND b.availableQuantity >= :quantity")
+    int decrementAvailableQuantityBy(@Param("externalId") Long externalId, @Param("quantity") int quantity);
+    
+    @Query("SELECT b.availableQuantity FROM Book b WHERE b.externalId = :externalId")
+    Optional<Integer> findAvailableQuantity(@Param("externalId") Long externalId);
+    
+    @Modifying
+    @Query("UPDATE Book b SET b.availableQuantity = b.availableQuantity + 1 " +
+           "WHERE b.externalId = :externalId AND b.availableQuantity < b.stockQuantity")
+    int incrementAvailableQuantity(@Param("externalId") Long externalId);
+    
+    // Devuelve varios ejemplares de una vez; no toca nada si superarían el stock
+    @Modifying
+    @Query("UPDATE Book b SET b.availableQuantity = b.availableQuantity + :quantity " +
+           "WHERE b.externalId = :externalId AND b.availableQuantity + :quantity <= b.stockQuantity")
+    int incrementAvailableQuantityBy(@Param("externalId") Long externalId, @Param("quantity") int quantity);
+    
+    @Query("SELECT b.stockQuantity - b.availableQuantity FROM Book b WHERE b.externalId = :externalId")
+    Optional<Integer> findLentQuantity(@Param("externalId") Long externalId);
+    
+    interface ContentHash {
+        Long getExternalId();
+        String getContentHash();
+    }
 }
-
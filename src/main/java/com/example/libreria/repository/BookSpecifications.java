@@ -0,0 +1,72 @@
+package com.example.libreria.repository;
+
+import com.example.libreria.dto.BookFilterDTO;
+import com.example.libreria.model.Book;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class BookSpecifications {
+    
+    private BookSpecifications() {
+    }
+    
+    public static Specification<Book> matching(BookFilterDTO filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getAuthor() != null && !filter.getAuthor().isBlank()) {
+                // EXISTS correlacionado: no multiplica filas como lo haría un join a book_authors
+                Subquery<Integer> authors = query.subquery(Integer.class);
+                Root<Book> book = authors.correlate(root);
+                Join<Book, String> author = book.join("authorName");
+                String pattern = "%" + filter.getAuthor().trim().toLowerCase(Locale.ROOT) + "%";
+                authors.select(cb.literal(1)).where(cb.like(cb.lower(author), pattern));
+                predicates.add(cb.exists(authors));
+            }
+            if (filter.getMinYear() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("firstPublishYear"), filter.getMinYear()));
+            }
+            if (filter.getMaxYear() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("firstPublishYear"), filter.getMaxYear()));
+            }
+            if (filter.getMinPrice() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), filter.getMinPrice()));
+            }
+            if (filter.getMaxPrice() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), filter.getMaxPrice()));
+            }
+            if (Boolean.TRUE.equals(filter.getInStock())) {
+                predicates.add(cb.greaterThan(root.get("availableQuantity"), 0));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+    
+    // Keyset: (campo, externalId) estrictamente después de la última fila de la página anterior
+    public static <T extends Comparable<? super T>> Specification<Book> after(String sortField, Sort.Direction direction,
+                                                                              T lastValue, Long lastExternalId) {
+        return (root, query, cb) -> {
+            Path<Long> externalId = root.get("externalId");
+            Predicate idAfter = direction.isAscending()
+                    ? cb.greaterThan(externalId, lastExternalId)
+                    : cb.lessThan(externalId, lastExternalId);
+            if ("externalId".equals(sortField)) {
+                return idAfter;
+            }
+            Expression<T> field = root.get(sortField);
+            Predicate fieldAfter = direction.isAscending()
+                    ? cb.greaterThan(field, lastValue)
+                    : cb.lessThan(field, lastValue);
+            return cb.or(fieldAfter, cb.and(cb.equal(field, lastValue), idAfter));
+        };
+    }
+}
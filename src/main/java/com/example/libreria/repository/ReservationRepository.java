@@ -1,23 +1,89 @@
 package com.example.libreria.repository;
 
 import com.example.libreria.dto.ReservationResponseDTO;
+import com.example.libreria.dto.UserReservationSummaryDTO;
 import com.example.libreria.model.Reservation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
     
-    List<Reservation> findByUserId(Long userId);
+    int EXPORT_FETCH_SIZE = 500;
+    
+    // Proyección directa al DTO con joins: un solo SELECT por listado, sin cargar User ni Book
+    String RESPONSE_PROJECTION = "SELECT new com.example.libreria.dto.ReservationResponseDTO(" +
+            "r.id, u.id, u.name, b.externalId, b.title, r.rentalDays, r.startDate, r.expectedReturnDate, " +
+            "r.actualReturnDate, r.dailyRate, r.totalFee, r.lateFee, r.status, r.createdAt) " +
+            "FROM Reservation r JOIN r.user u JOIN r.book b ";
+    
+    // Listados paginados por keyset: WHERE r.id > :afterId ORDER BY r.id, sin OFFSET ni COUNT
+    @Query(RESPONSE_PROJECTION + "WHERE r.id > :afterId ORDER BY r.id")
+    List<ReservationResponseDTO> findAllResponses(@Param("afterId") Long afterId, Pageable page);
+
+    @Query(RESPONSE_PROJECTION + "WHERE u.id = :userId AND r.id > :afterId ORDER BY r.id")
+    List<ReservationResponseDTO> findResponsesByUserId(@Param("userId") Long userId,
+                                                       @Param("afterId") Long afterId, Pageable page);
+
+    // Listado por estado cacheable (hibernate.cache.use_query_cache, perfil l2cache);
+    // se invalida solo cuando cambia cualquiera de las tablas consultadas
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query(RESPONSE_PROJECTION + "WHERE r.status = :status AND r.id > :afterId ORDER BY r.id")
+    List<ReservationResponseDTO> findResponsesByStatus(@Param("status") Reservation.ReservationStatus status,
+                                                       @Param("afterId") Long afterId, Pageable page);
+
+    // Vencidas: las ya marcadas OVERDUE más las activas que el barrido todavía no alcanzó,
+    // ambas por el índice (status, expected_return_date)
+    @Query(RESPONSE_PROJECTION + "WHERE (r.status = com.example.libreria.model.Reservation.ReservationStatus.OVERDUE " +
+            "OR (r.status = com.example.libreria.model.Reservation.ReservationStatus.ACTIVE AND r.expectedReturnDate < :today)) " +
+            "AND r.id > :afterId ORDER BY r.id")
+    List<ReservationResponseDTO> findOverdueResponses(@Param("today") LocalDate today,
+                                                      @Param("afterId") Long afterId, Pageable page);
+
+    // Resumen de un usuario en un solo GROUP BY sobre el índice por user_id, sin cargar reservas, usuario ni libro.
+    // La última actividad es el último retiro o devolución; sin reservas no hay fila
+    @Query("SELECT new com.example.libreria.dto.UserReservationSummaryDTO(r.user.id, " +
+            "SUM(CASE WHEN r.status = com.example.libreria.model.Reservation.ReservationStatus.ACTIVE THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN r.status = com.example.libreria.model.Reservation.ReservationStatus.OVERDUE THEN 1 ELSE 0 END), " +
+            "COALESCE(SUM(r.totalFee), 0), COALESCE(SUM(r.lateFee), 0), " +
+            "MAX(COALESCE(r.actualReturnDate, r.startDate))) " +
+            "FROM Reservation r WHERE r.user.id = :userId GROUP BY r.user.id")
+    Optional<UserReservationSummaryDTO> summarizeByUserId(@Param("userId") Long userId);
+
+    // Barrido de vencidas por el índice (status, expected_return_date): primero los IDs de un lote acotado
+    // y luego un UPDATE sobre esos IDs, que vuelve a comprobar el estado por si alguno se devolvió entre medio
+    @Query("SELECT r.id FROM Reservation r WHERE r.status = :status AND r.expectedReturnDate < :date")
+    List<Long> findIdsByStatusAndExpectedReturnDateBefore(@Param("status") Reservation.ReservationStatus status,
+                                                          @Param("date") LocalDate date, Pageable page);
+
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = :to WHERE r.id IN :ids AND r.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("from") Reservation.ReservationStatus from,
+                     @Param("to") Reservation.ReservationStatus to);
 
-    List<Reservation> findByStatus(Reservation.ReservationStatus status);
+    // Devoluciones en lote: todas las reservas pedidas, con usuario y libro, en una sola consulta
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.user JOIN FETCH r.book WHERE r.id IN :ids")
+    List<Reservation> findAllWithUserAndBookByIdIn(@Param("ids") Collection<Long> ids);
 
-    List<Reservation> findByStatusAndExpectedReturnDateBefore(Reservation.ReservationStatus status, LocalDate date);
+    // Exportación completa con memoria constante: se recorre con un cursor JDBC
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.user JOIN FETCH r.book ORDER BY r.id")
+    Stream<Reservation> streamAllWithUserAndBook();
 
 }
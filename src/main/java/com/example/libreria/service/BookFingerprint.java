@@ -0,0 +1,39 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.ExternalBookDTO;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+final class BookFingerprint {
+    
+    private static final char FIELD_SEPARATOR = '\u001F';
+    
+    private BookFingerprint() {
+    }
+    
+    // SHA-256 de título, autores, año, ediciones, fulltext y precio (normalizado, 15.9 == 15.90)
+    static String of(ExternalBookDTO dto) {
+        StringBuilder canonical = new StringBuilder(128)
+                .append(dto.getTitle()).append(FIELD_SEPARATOR);
+        List<String> authors = dto.getAuthorName() != null ? dto.getAuthorName() : List.of();
+        for (String author : authors) {
+            canonical.append(author).append('\u001E');
+        }
+        BigDecimal price = dto.getPrice();
+        canonical.append(FIELD_SEPARATOR).append(dto.getFirstPublishYear())
+                .append(FIELD_SEPARATOR).append(dto.getEditionCount())
+                .append(FIELD_SEPARATOR).append(dto.getHasFulltext())
+                .append(FIELD_SEPARATOR).append(price != null ? price.stripTrailingZeros().toPlainString() : null);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 no disponible", e);
+        }
+    }
+}
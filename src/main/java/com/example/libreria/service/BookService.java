@@ -1,58 +1,186 @@
 package com.example.libreria.service;
 
+import com.example.libreria.config.CacheConfig;
+import com.example.libreria.dto.BookFilterDTO;
 import com.example.libreria.dto.BookResponseDTO;
+import com.example.libreria.dto.BookSyncResultDTO;
+import com.example.libreria.dto.CacheStatsDTO;
+import com.example.libreria.dto.CursorPageDTO;
 import com.example.libreria.dto.ExternalBookDTO;
 import com.example.libreria.model.Book;
 import com.example.libreria.repository.BookRepository;
+import com.example.libreria.repository.BookSpecifications;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "libreria.service", histogram = true)
 public class BookService {
     
+    private static final int DEFAULT_STOCK = 10;
+    private static final int DEFAULT_SYNC_CHUNK_SIZE = 500;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Set<String> SORTABLE_FIELDS = Set.of("externalId", "title", "price");
+    
     private final BookRepository bookRepository;
     private final ExternalBookService externalBookService;
+    private final EntityManager entityManager;
+    private final CacheManager cacheManager;
+    private final LibreriaMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
     
-    @Transactional
-    public void syncBooksFromExternalApi() {
+    @Value("${books.sync.chunk-size:" + DEFAULT_SYNC_CHUNK_SIZE + "}")
+    private int syncChunkSize = DEFAULT_SYNC_CHUNK_SIZE;
+    
+    public BookSyncResultDTO syncBooksFromExternalApi() {
+        return syncBooksFromExternalApi(progress -> { });
+    }
+    
+    // Cada bloque se confirma en su propia transacción: la sincronización no retiene una
+    // transacción (ni una conexión) mientras lee el catálogo, y si falla a mitad de camino
+    // los bloques ya confirmados quedan guardados. El listener recibe el avance tras cada bloque
+    public BookSyncResultDTO syncBooksFromExternalApi(Consumer<BookSyncResultDTO> progressListener) {
         log.info("Synchronizing books from external API");
-        List<ExternalBookDTO> externalBooks = externalBookService.fetchAllBooks();
+        long start = System.nanoTime();
+        BookSyncResultDTO result = new BookSyncResultDTO();
+        boolean modified = externalBookService.streamAllBooks(syncChunkSize, chunk -> {
+            transactionTemplate.execute(status -> {
+                syncChunk(chunk, result);
+                return null;
+            });
+            progressListener.accept(result);
+        });
+        result.setNotModified(!modified);
         
-        for (ExternalBookDTO externalBook : externalBooks) {
-            Book existingBook = bookRepository.findByExternalId(externalBook.getId())
-                    .orElse(null);
+        long elapsedNanos = System.nanoTime() - start;
+        result.setDurationMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        result.setRowsPerSecond(elapsedNanos > 0 ? result.getProcessed() * 1_000_000_000d / elapsedNanos : 0);
+        metrics.syncCompleted(result);
+        log.info("Synchronization completed: {} created, {} updated, {} unchanged in {} ms ({} rows/s)",
+                result.getCreated(), result.getUpdated(), result.getUnchanged(),
+                result.getDurationMs(), String.format("%.1f", result.getRowsPerSecond()));
+        return result;
+    }
+    
+    private void syncChunk(List<ExternalBookDTO> chunk, BookSyncResultDTO result) {
+        // Si el feed repite un ID dentro del bloque, gana la última aparición
+        Map<Long, ExternalBookDTO> externalById = new LinkedHashMap<>();
+        for (ExternalBookDTO externalBook : chunk) {
+            if (externalBook.getId() != null) {
+                externalById.put(externalBook.getId(), externalBook);
+            }
+        }
+        if (externalById.isEmpty()) {
+            return;
+        }
+        
+        // Primero solo huellas: los libros sin cambios no se cargan ni se reescriben
+        Map<Long, String> storedHashes = new HashMap<>();
+        for (BookRepository.ContentHash stored : bookRepository.findContentHashesByExternalIdIn(externalById.keySet())) {
+            storedHashes.put(stored.getExternalId(), stored.getContentHash() != null ? stored.getContentHash() : "");
+        }
+        
+        List<Book> toSave = new ArrayList<>();
+        Map<Long, String> changedHashes = new HashMap<>();
+        for (ExternalBookDTO externalBook : externalById.values()) {
+            String hash = BookFingerprint.of(externalBook);
+            String storedHash = storedHashes.get(externalBook.getId());
             
-            if (existingBook == null) {
+            if (storedHash == null) {
                 Book newBook = convertToBook(externalBook);
-                newBook.setStockQuantity(10); // Stock inicial por defecto
-                newBook.setAvailableQuantity(10);
-                bookRepository.save(newBook);
-                log.info("Created new book: {}", newBook.getTitle());
+                newBook.setContentHash(hash);
+                newBook.setStockQuantity(DEFAULT_STOCK); // Stock inicial por defecto
+                newBook.setAvailableQuantity(DEFAULT_STOCK);
+                newBook.setNew(true);
+                toSave.add(newBook);
+                result.setCreated(result.getCreated() + 1);
+            } else if (storedHash.equals(hash)) {
+                result.setUnchanged(result.getUnchanged() + 1);
             } else {
-                // Actualizar información del libro
-                updateBookFromExternal(existingBook, externalBook);
-                bookRepository.save(existingBook);
-                log.info("Updated book: {}", existingBook.getTitle());
+                changedHashes.put(externalBook.getId(), hash);
             }
         }
-        log.info("Synchronization completed");
+        
+        if (!changedHashes.isEmpty()) {
+            for (Book existingBook : bookRepository.findByExternalIdIn(changedHashes.keySet())) {
+                updateBookFromExternal(existingBook, externalById.get(existingBook.getExternalId()));
+                existingBook.setContentHash(changedHashes.get(existingBook.getExternalId()));
+                toSave.add(existingBook);
+                result.setUpdated(result.getUpdated() + 1);
+            }
+        }
+        
+        // Inserts y updates salen como batches JDBC (hibernate.jdbc.batch_size)
+        bookRepository.saveAll(toSave);
+        bookRepository.flush();
+        entityManager.clear();
+        // La caché es transaccional: los libros modificados se desalojan al confirmar el bloque
+        Cache booksCache = cacheManager.getCache(CacheConfig.BOOKS_CACHE);
+        if (booksCache != null) {
+            changedHashes.keySet().forEach(booksCache::evict);
+        }
+        result.setProcessed(result.getProcessed() + externalById.size());
+        log.debug("Synchronized chunk of {} books", externalById.size());
     }
     
     @Transactional(readOnly = true)
-    public List<BookResponseDTO> getAllBooks() {
-        return bookRepository.findAll().stream()
-                .map(this::convertToDTO)
+    public CursorPageDTO<BookResponseDTO> searchBooks(BookFilterDTO filter) {
+        String sortField = filter.getSort() != null ? filter.getSort() : "externalId";
+        if (!SORTABLE_FIELDS.contains(sortField)) {
+            throw new RuntimeException("Campo de orden no soportado: " + sortField + ". Valores válidos: " + SORTABLE_FIELDS);
+        }
+        Sort.Direction direction = filter.getDirection() != null ? Sort.Direction.fromString(filter.getDirection()) : Sort.Direction.ASC;
+        int pageSize = pageSize(filter.getLimit());
+        
+        Specification<Book> spec = BookSpecifications.matching(filter);
+        if (filter.getAfter() != null && !filter.getAfter().isBlank()) {
+            spec = spec.and(decodeCursor(filter.getAfter(), sortField, direction));
+        }
+        // externalId desempata los valores repetidos y hace estable el cursor
+        Sort sort = "externalId".equals(sortField)
+                ? Sort.by(direction, "externalId")
+                : Sort.by(direction, sortField, "externalId");
+        List<Book> books = bookRepository.findBy(spec, query -> query.sortBy(sort).limit(pageSize).all());
+        
+        List<BookResponseDTO> content = books.stream()
+                .map(BookService::convertToDTO)
                 .collect(Collectors.toList());
+        String nextCursor = books.size() == pageSize ? encodeCursor(books.get(books.size() - 1), sortField) : null;
+        return new CursorPageDTO<>(content, pageSize, nextCursor);
     }
     
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
     public BookResponseDTO getBookByExternalId(Long externalId) {
         Book book = bookRepository.findByExternalId(externalId)
                 .orElseThrow(() -> new RuntimeException("Libro no encontrado con ID externo: " + externalId));
@@ -60,6 +188,7 @@ public class BookService {
     }
     
     @Transactional
+    @CachePut(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
     public BookResponseDTO updateStock(Long externalId, Integer stockQuantity) {
         Book book = bookRepository.findByExternalId(externalId)
                 .orElseThrow(() -> new RuntimeException("Libro no encontrado con ID externo: " + externalId));
@@ -77,29 +206,119 @@ public class BookService {
     }
     
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
     public void decreaseAvailableQuantity(Long externalId) {
-        Book book = bookRepository.findByExternalId(externalId)
-                .orElseThrow(() -> new RuntimeException("Libro no encontrado con ID externo: " + externalId));
-        
-        if (book.getAvailableQuantity() <= 0) {
+        if (!tryDecreaseAvailableQuantity(externalId)) {
+            requireBookExists(externalId);
+            metrics.stockRejected();
             throw new RuntimeException("No hay libros disponibles para reservar");
         }
-        
-        book.setAvailableQuantity(book.getAvailableQuantity() - 1);
-        bookRepository.save(book);
     }
     
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
+    public boolean tryDecreaseAvailableQuantity(Long externalId) {
+        return bookRepository.decrementAvailableQuantity(externalId) == 1;
+    }
+    
+    // Reserva hasta `quantity` ejemplares con un solo UPDATE; si no alcanzan, concede los que queden.
+    // Devuelve cuántos se reservaron (0 si no hay stock o el libro no existe) y nunca lanza excepción,
+    // para no marcar como rollback-only la transacción de un lote con fallos parciales
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
+    public int reserveAvailableQuantity(Long externalId, int quantity) {
+        int granted = quantity;
+        while (granted > 0 && bookRepository.decrementAvailableQuantityBy(externalId, granted) == 0) {
+            granted = Math.min(granted, bookRepository.findAvailableQuantity(externalId).orElse(0));
+        }
+        if (granted < quantity) {
+            metrics.stockRejected(quantity - granted);
+        }
+        return granted;
+    }
+    
+    // Devuelve hasta `quantity` ejemplares con un solo UPDATE; si superarían el stock, repone solo los prestados.
+    // Devuelve cuántos se repusieron y tampoco lanza excepción: el lote informa el resto como fallidos
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
+    public int releaseAvailableQuantity(Long externalId, int quantity) {
+        int released = quantity;
+        while (released > 0 && bookRepository.incrementAvailableQuantityBy(externalId, released) == 0) {
+            released = Math.min(released, bookRepository.findLentQuantity(externalId).orElse(0));
+        }
+        if (released < quantity) {
+            log.warn("Book {}: {} of {} returned copies exceed the stock", externalId, quantity - released, quantity);
+        }
+        return released;
+    }
+    
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
     public void increaseAvailableQuantity(Long externalId) {
-        Book book = bookRepository.findByExternalId(externalId)
-                .orElseThrow(() -> new RuntimeException("Libro no encontrado con ID externo: " + externalId));
-        
-        if (book.getAvailableQuantity() >= book.getStockQuantity()) {
+        if (!tryIncreaseAvailableQuantity(externalId)) {
+            requireBookExists(externalId);
             throw new RuntimeException("La cantidad disponible no puede exceder el stock");
         }
-        
-        book.setAvailableQuantity(book.getAvailableQuantity() + 1);
-        bookRepository.save(book);
+    }
+    
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.BOOKS_CACHE, key = "#externalId")
+    public boolean tryIncreaseAvailableQuantity(Long externalId) {
+        return bookRepository.incrementAvailableQuantity(externalId) == 1;
+    }
+    
+    public CacheStatsDTO getCacheStats() {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> cache = CacheConfig.nativeCache(cacheManager, CacheConfig.BOOKS_CACHE);
+        CacheStats stats = cache.stats();
+        return new CacheStatsDTO(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                stats.hitRate(), cache.estimatedSize());
+    }
+    
+    private void requireBookExists(Long externalId) {
+        if (!bookRepository.existsByExternalId(externalId)) {
+            throw new RuntimeException("Libro no encontrado con ID externo: " + externalId);
+        }
+    }
+    
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new RuntimeException("El límite de la página debe ser positivo");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+    
+    // Cursor opaco: base64url de "campo|valor|externalId" de la última fila devuelta
+    private static String encodeCursor(Book last, String sortField) {
+        String value = switch (sortField) {
+            case "title" -> last.getTitle();
+            case "price" -> last.getPrice().toPlainString();
+            default -> "";
+        };
+        String raw = sortField + "|" + value + "|" + last.getExternalId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static Specification<Book> decodeCursor(String cursor, String sortField, Sort.Direction direction) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf('|');
+            int last = raw.lastIndexOf('|');
+            if (first < 0 || first == last || !raw.substring(0, first).equals(sortField)) {
+                throw new RuntimeException("El cursor no corresponde al orden solicitado: " + sortField);
+            }
+            String value = raw.substring(first + 1, last);
+            Long lastExternalId = Long.valueOf(raw.substring(last + 1));
+            return switch (sortField) {
+                case "title" -> BookSpecifications.after(sortField, direction, value, lastExternalId);
+                case "price" -> BookSpecifications.after(sortField, direction, new BigDecimal(value), lastExternalId);
+                default -> BookSpecifications.after(sortField, direction, lastExternalId, lastExternalId);
+            };
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Cursor inválido: " + cursor);
+        }
     }
     
     private Book convertToBook(ExternalBookDTO dto) {
@@ -116,18 +335,24 @@ public class BookService {
     
     private void updateBookFromExternal(Book book, ExternalBookDTO dto) {
         book.setTitle(dto.getTitle());
-        book.setAuthorName(dto.getAuthorName());
+        // Reemplazar la colección reescribe book_authors completo, solo se hace si cambió
+        List<String> authors = dto.getAuthorName() != null ? dto.getAuthorName() : List.of();
+        List<String> currentAuthors = book.getAuthorName() != null ? new ArrayList<>(book.getAuthorName()) : List.of();
+        if (!currentAuthors.equals(authors)) {
+            book.setAuthorName(dto.getAuthorName());
+        }
         book.setFirstPublishYear(dto.getFirstPublishYear());
         book.setEditionCount(dto.getEditionCount());
         book.setHasFulltext(dto.getHasFulltext());
         book.setPrice(dto.getPrice());
     }
     
-    private BookResponseDTO convertToDTO(Book book) {
+    static BookResponseDTO convertToDTO(Book book) {
         BookResponseDTO dto = new BookResponseDTO();
         dto.setExternalId(book.getExternalId());
         dto.setTitle(book.getTitle());
-        dto.setAuthorName(book.getAuthorName());
+        // Copia: inicializa la colección dentro de la transacción y no expone el PersistentBag
+        dto.setAuthorName(book.getAuthorName() != null ? new ArrayList<>(book.getAuthorName()) : null);
         dto.setFirstPublishYear(book.getFirstPublishYear());
         dto.setEditionCount(book.getEditionCount());
         dto.setHasFulltext(book.getHasFulltext());
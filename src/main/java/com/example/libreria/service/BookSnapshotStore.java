@@ -0,0 +1,104 @@
+package com.example.libreria.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+// Última copia completa del catálogo externo en disco, para seguir sincronizando
+// mientras la API está caída. Se escribe primero a un temporal y se publica con un
+// move atómico, de modo que un lector nunca ve un catálogo a medio escribir
+@Component
+@Slf4j
+public class BookSnapshotStore {
+    
+    private static final String CATALOG_FILE = "external-books.json";
+    
+    private final Path directory;
+    private final Path catalog;
+    private final Duration maxAge;
+    private final Clock clock;
+    
+    @Autowired
+    public BookSnapshotStore(@Value("${external.api.books.snapshot.dir}") Path directory,
+                             @Value("${external.api.books.snapshot.max-age:24h}") Duration maxAge) {
+        this(directory, maxAge, Clock.systemUTC());
+    }
+    
+    BookSnapshotStore(Path directory, Duration maxAge, Clock clock) {
+        this.directory = directory;
+        this.catalog = directory.resolve(CATALOG_FILE);
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+    
+    // Copia la respuesta a un temporal junto al catálogo; si la copia falla no queda nada a medias
+    public Path download(InputStream body) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "external-books-", ".tmp");
+        try {
+            Files.copy(body, temp, StandardCopyOption.REPLACE_EXISTING);
+            return temp;
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+    
+    public void publish(Path download) throws IOException {
+        Files.move(download, catalog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("External catalog snapshot updated: {}", catalog);
+    }
+    
+    public void discard(Path download) {
+        try {
+            Files.deleteIfExists(download);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary snapshot {}: {}", download, e.getMessage());
+        }
+    }
+    
+    public void save(InputStream body) throws IOException {
+        publish(download(body));
+    }
+    
+    // La API confirmó (304) que el catálogo no cambió: la copia vuelve a contar como reciente
+    public void touch() {
+        try {
+            Files.setLastModifiedTime(catalog, FileTime.from(clock.instant()));
+        } catch (NoSuchFileException e) {
+            // Todavía no hay copia: nada que renovar
+        } catch (IOException e) {
+            log.warn("Could not refresh snapshot timestamp {}: {}", catalog, e.getMessage());
+        }
+    }
+    
+    // Solo se ofrece la copia si no supera la antigüedad máxima configurada
+    public Optional<Path> latest() {
+        try {
+            Instant savedAt = Files.getLastModifiedTime(catalog).toInstant();
+            if (Duration.between(savedAt, clock.instant()).compareTo(maxAge) > 0) {
+                log.warn("External catalog snapshot {} is older than {}", catalog, maxAge);
+                return Optional.empty();
+            }
+            return Optional.of(catalog);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Could not read snapshot {}: {}", catalog, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.BookSyncJobDTO;
+import com.example.libreria.dto.BookSyncJobDTO.JobStatus;
+import com.example.libreria.dto.BookSyncResultDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Ejecuta la sincronización fuera del hilo de la petición. Solo corre un trabajo a la vez:
+// pedir otro mientras hay uno en curso devuelve el que ya está corriendo
+@Service
+@Slf4j
+public class BookSyncJobService {
+    
+    private final BookService bookService;
+    private final TaskExecutor taskExecutor;
+    private final int retainedJobs;
+    
+    private final Map<String, BookSyncJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicReference<BookSyncJob> running = new AtomicReference<>();
+    
+    public BookSyncJobService(BookService bookService,
+                              @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                              @Value("${books.sync.retained-jobs:20}") int retainedJobs) {
+        this.bookService = bookService;
+        this.taskExecutor = taskExecutor;
+        this.retainedJobs = retainedJobs;
+    }
+    
+    public BookSyncJobDTO startSync(String trigger) {
+        BookSyncJob job = new BookSyncJob(UUID.randomUUID().toString(), trigger, LocalDateTime.now());
+        if (!running.compareAndSet(null, job)) {
+            BookSyncJob current = running.get();
+            if (current != null) {
+                log.info("Sync job {} already running, ignoring {} request", current.id, trigger);
+                return current.toDTO();
+            }
+            // El trabajo anterior terminó entre ambas lecturas: se vuelve a intentar
+            return startSync(trigger);
+        }
+        jobs.put(job.id, job);
+        pruneFinishedJobs();
+        try {
+            taskExecutor.execute(() -> run(job));
+        } catch (RuntimeException e) {
+            finish(job, e);
+            throw new RuntimeException("No se pudo iniciar la sincronización: " + e.getMessage(), e);
+        }
+        log.info("Sync job {} started by {}", job.id, trigger);
+        return job.toDTO();
+    }
+    
+    public BookSyncJobDTO getJob(String jobId) {
+        BookSyncJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new RuntimeException("Trabajo de sincronización no encontrado con ID: " + jobId);
+        }
+        return job.toDTO();
+    }
+    
+    // Desactivado por defecto (cron "-"); p. ej. books.sync.cron=0 0 3 * * * para sincronizar cada noche
+    @Scheduled(cron = "${books.sync.cron:-}")
+    public void scheduledSync() {
+        startSync("scheduler");
+    }
+    
+    private void run(BookSyncJob job) {
+        try {
+            BookSyncResultDTO result = bookService.syncBooksFromExternalApi(job::progress);
+            job.result = result;
+            finish(job, null);
+            log.info("Sync job {} completed: {} books processed", job.id, result.getProcessed());
+        } catch (RuntimeException e) {
+            finish(job, e);
+            log.error("Sync job {} failed at chunk {} after {} committed chunks: {}",
+                    job.id, job.failedChunk, job.committedChunks, e.getMessage(), e);
+        }
+    }
+    
+    private void finish(BookSyncJob job, RuntimeException error) {
+        if (error != null) {
+            job.error = error.getMessage();
+            // Los bloques anteriores ya se confirmaron: el catálogo queda actualizado hasta ahí
+            job.failedChunk = job.committedChunks + 1;
+        }
+        job.finishedAt = LocalDateTime.now();
+        job.status = error != null ? JobStatus.FAILED : JobStatus.COMPLETED;
+        running.compareAndSet(job, null);
+    }
+    
+    // Conserva solo los últimos trabajos terminados para que el mapa no crezca sin límite
+    private void pruneFinishedJobs() {
+        int excess = jobs.size() - retainedJobs;
+        if (excess <= 0) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(job -> job.status != JobStatus.RUNNING)
+                .sorted((a, b) -> Long.compare(a.startNanos, b.startNanos))
+                .limit(excess)
+                .forEach(job -> jobs.remove(job.id));
+    }
+    
+    // Estado mutable de un trabajo; lo escribe el hilo de la sincronización y lo leen las consultas
+    private static final class BookSyncJob {
+        
+        private final String id;
+        private final String trigger;
+        private final LocalDateTime startedAt;
+        private final long startNanos = System.nanoTime();
+        private volatile JobStatus status = JobStatus.RUNNING;
+        private volatile LocalDateTime finishedAt;
+        private volatile int committedChunks;
+        private volatile Integer failedChunk;
+        private volatile BookSyncResultDTO result = new BookSyncResultDTO();
+        private volatile String error;
+        
+        private BookSyncJob(String id, String trigger, LocalDateTime startedAt) {
+            this.id = id;
+            this.trigger = trigger;
+            this.startedAt = startedAt;
+        }
+        
+        // Copia el avance: el resultado que recibe el listener lo sigue modificando la sincronización
+        private void progress(BookSyncResultDTO progress) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            result = new BookSyncResultDTO(progress.getCreated(), progress.getUpdated(), progress.getUnchanged(),
+                    progress.getProcessed(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    elapsedNanos > 0 ? progress.getProcessed() * 1_000_000_000d / elapsedNanos : 0, false);
+            committedChunks++;
+        }
+        
+        private BookSyncJobDTO toDTO() {
+            return new BookSyncJobDTO(id, status, trigger, startedAt, finishedAt, committedChunks, failedChunk,
+                    result, error);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.libreria.service;
+
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.util.function.Predicate;
+
+// Fallos que el retry de externalBooks vuelve a intentar (resilience4j.retry.instances.externalBooks.retry-exception-predicate).
+// Solo los 5xx y los fallos de conexión, que no llegaron a esperar la respuesta: un timeout de lectura ya
+// consumió read-timeout y repetirlo multiplicaría la espera del llamador
+public class ExternalApiRetryPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable e) {
+        if (e instanceof HttpServerErrorException) {
+            return true;
+        }
+        if (!(e instanceof ResourceAccessException)) {
+            return false;
+        }
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            // HttpURLConnection informa el timeout de conexión como un SocketTimeoutException igual al de lectura:
+            // con el cliente simple no se reintenta
+            if (cause instanceof ConnectException
+                    || cause instanceof HttpConnectTimeoutException
+                    || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
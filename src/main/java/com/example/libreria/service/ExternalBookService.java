@@ -1,62 +1,354 @@
 package com.example.libreria.service;
 
 import com.example.libreria.dto.ExternalBookDTO;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
+@Timed(value = "libreria.service", histogram = true)
 public class ExternalBookService {
     // TODO: completar llamada a la API externa (ver bien todo el proyecto...)
     
+    // Nombre del circuit breaker y del retry (resilience4j.*.instances.externalBooks)
+    public static final String EXTERNAL_BOOKS = "externalBooks";
+    
     private final RestTemplate restTemplate;
+    private final ObjectReader bookReader;
+    private final ObjectMapper objectMapper;
+    private final AsyncTaskExecutor externalApiExecutor;
+    private final BookSnapshotStore snapshotStore;
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+    // Bulkhead: llamadas simultáneas a la API externa, sin importar cuántos hilos las pidan
+    private final Semaphore parallelism;
+    // Una sola petición en vuelo por ID; los pedidos repetidos comparten su resultado
+    private final Map<Long, CompletableFuture<ExternalBookDTO>> inFlight = new ConcurrentHashMap<>();
+    
+    // Validadores de la última respuesta completa del catálogo (ETag / Last-Modified)
+    private final AtomicReference<String> lastETag = new AtomicReference<>();
+    private final AtomicReference<String> lastModified = new AtomicReference<>();
     
     @Value("${external.api.books.url}")
     private String externalApiUrl;
     
-    public ExternalBookService(RestTemplate restTemplate) {
+    public ExternalBookService(RestTemplate restTemplate, ObjectMapper objectMapper,
+                               @Qualifier("externalApiExecutor") AsyncTaskExecutor externalApiExecutor,
+                               BookSnapshotStore snapshotStore,
+                               CircuitBreakerRegistry circuitBreakerRegistry,
+                               RetryRegistry retryRegistry,
+                               @Value("${external.api.books.max-parallelism:8}") int maxParallelism) {
         this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.externalApiExecutor = externalApiExecutor;
+        this.snapshotStore = snapshotStore;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(EXTERNAL_BOOKS);
+        this.retry = retryRegistry.retry(EXTERNAL_BOOKS);
+        this.parallelism = new Semaphore(maxParallelism);
+        this.bookReader = objectMapper.readerFor(ExternalBookDTO.class);
     }
     
     public List<ExternalBookDTO> fetchAllBooks() {
         try {
             log.info("Fetching books from external API: {}", externalApiUrl);
-            ResponseEntity<List<ExternalBookDTO>> response = restTemplate.exchange(
+            ResponseEntity<List<ExternalBookDTO>> response = callExternalApi(() -> restTemplate.exchange(
                     externalApiUrl,
                     HttpMethod.GET,
                     null,
                     new ParameterizedTypeReference<List<ExternalBookDTO>>() {}
-            );
+            ));
             
             List<ExternalBookDTO> books = response.getBody();
             log.info("Successfully fetched {} books from external API", books != null ? books.size() : 0);
-            return books != null ? books : Collections.emptyList();
-        } catch (RestClientException e) {
+            if (books == null) {
+                return Collections.emptyList();
+            }
+            saveSnapshot(books);
+            return books;
+        } catch (RestClientException | CallNotPermittedException e) {
+            if (isUnavailable(e)) {
+                Optional<List<ExternalBookDTO>> snapshot = readSnapshot();
+                if (snapshot.isPresent()) {
+                    log.warn("External API unavailable ({}), serving {} books from snapshot", e.getMessage(), snapshot.get().size());
+                    return snapshot.get();
+                }
+            }
             log.error("Error fetching books from external API: {}", e.getMessage(), e);
             throw new RuntimeException("Error al obtener libros de la API externa: " + e.getMessage(), e);
         }
     }
     
+    // Lee el catálogo en streaming y lo entrega en bloques de a lo sumo chunkSize libros,
+    // sin materializar la respuesta completa en memoria. Usa GET condicional: devuelve false
+    // si la API respondió 304 (el catálogo no cambió desde la última lectura completa).
+    // La respuesta pasa por disco y, una vez procesada, queda como copia de respaldo: si la
+    // API no responde (o el circuito está abierto) se sincroniza desde esa copia
+    public boolean streamAllBooks(int chunkSize, Consumer<List<ExternalBookDTO>> chunkConsumer) {
+        CatalogDownload download;
+        try {
+            log.info("Streaming books from external API: {}", externalApiUrl);
+            download = callExternalApi(() -> restTemplate.execute(
+                    externalApiUrl,
+                    HttpMethod.GET,
+                    request -> {
+                        HttpHeaders headers = request.getHeaders();
+                        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+                        String eTag = lastETag.get();
+                        if (eTag != null) {
+                            headers.setIfNoneMatch(eTag);
+                        }
+                        String modifiedSince = lastModified.get();
+                        if (modifiedSince != null) {
+                            headers.set(HttpHeaders.IF_MODIFIED_SINCE, modifiedSince);
+                        }
+                    },
+                    response -> {
+                        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                            return CatalogDownload.NOT_MODIFIED;
+                        }
+                        return new CatalogDownload(snapshotStore.download(response.getBody()),
+                                response.getHeaders().getETag(),
+                                response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED));
+                    }
+            ));
+        } catch (RestClientException | CallNotPermittedException e) {
+            Optional<Path> snapshot = isUnavailable(e) ? snapshotStore.latest() : Optional.empty();
+            if (snapshot.isEmpty()) {
+                log.error("Error streaming books from external API: {}", e.getMessage(), e);
+                throw new RuntimeException("Error al obtener libros de la API externa: " + e.getMessage(), e);
+            }
+            log.warn("External API unavailable ({}), syncing from snapshot {}", e.getMessage(), snapshot.get());
+            int total = readBooks(snapshot.get(), chunkSize, chunkConsumer);
+            log.info("Successfully streamed {} books from snapshot", total);
+            return true;
+        }
+        
+        if (download == null || download == CatalogDownload.NOT_MODIFIED) {
+            log.info("External catalog not modified since last sync");
+            snapshotStore.touch();
+            return false;
+        }
+        try {
+            int total = readBooks(download.file, chunkSize, chunkConsumer);
+            // Solo se recuerdan los validadores (y la copia) si el catálogo se procesó completo
+            publishSnapshot(download.file);
+            lastETag.set(download.eTag);
+            lastModified.set(download.lastModified);
+            log.info("Successfully streamed {} books from external API", total);
+            return true;
+        } finally {
+            snapshotStore.discard(download.file);
+        }
+    }
+    
+    private int readBooks(Path file, int chunkSize, Consumer<List<ExternalBookDTO>> chunkConsumer) {
+        try (InputStream body = Files.newInputStream(file)) {
+            return readBooks(body, chunkSize, chunkConsumer);
+        } catch (IOException e) {
+            throw new RuntimeException("Error al leer el catálogo descargado: " + e.getMessage(), e);
+        }
+    }
+    
+    public int readBooks(InputStream body, int chunkSize, Consumer<List<ExternalBookDTO>> chunkConsumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Se esperaba un arreglo JSON de libros");
+            }
+            int total = 0;
+            List<ExternalBookDTO> chunk = new ArrayList<>(chunkSize);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                chunk.add(bookReader.readValue(parser));
+                total++;
+                if (chunk.size() >= chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+            return total;
+        }
+    }
+    
     public ExternalBookDTO fetchBookById(Long id) {
         try {
             log.info("Fetching book with id {} from external API", id);
-            String url = externalApiUrl + "/" + id;
-            ExternalBookDTO book = restTemplate.getForObject(url, ExternalBookDTO.class);
+            // URI plantilla: el ID no genera una serie de métricas por libro
+            ExternalBookDTO book = callExternalApi(() -> restTemplate.getForObject(externalApiUrl + "/{id}", ExternalBookDTO.class, id));
             log.info("Successfully fetched book: {}", book != null ? book.getTitle() : "null");
             return book;
-        } catch (RestClientException e) {
+        } catch (RestClientException | CallNotPermittedException e) {
+            if (isUnavailable(e)) {
+                Optional<ExternalBookDTO> cached = findInSnapshot(id);
+                if (cached.isPresent()) {
+                    log.warn("External API unavailable ({}), serving book {} from snapshot", e.getMessage(), id);
+                    return cached.get();
+                }
+            }
             log.error("Error fetching book {} from external API: {}", id, e.getMessage(), e);
             throw new RuntimeException("Error al obtener el libro de la API externa: " + e.getMessage(), e);
         }
     }
+    
+    // La espera de la respuesta ocupa un hilo de externalApiExecutor (virtual en Java 21), no el de la petición
+    public CompletableFuture<ExternalBookDTO> fetchBookByIdAsync(Long id) {
+        CompletableFuture<ExternalBookDTO> request = new CompletableFuture<>();
+        CompletableFuture<ExternalBookDTO> pending = inFlight.putIfAbsent(id, request);
+        if (pending != null) {
+            return pending.copy();
+        }
+        try {
+            externalApiExecutor.execute(() -> {
+                try {
+                    request.complete(fetchWithinBulkhead(id));
+                } catch (Throwable e) {
+                    request.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(id, request);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(id, request);
+            request.completeExceptionally(e);
+        }
+        return request.copy();
+    }
+    
+    // Un futuro por ID distinto, en el orden recibido; cada uno se completa en cuanto llega su respuesta
+    public Map<Long, CompletableFuture<ExternalBookDTO>> fetchBooksByIds(Collection<Long> ids) {
+        Map<Long, CompletableFuture<ExternalBookDTO>> results = new LinkedHashMap<>();
+        for (Long id : ids) {
+            results.computeIfAbsent(id, this::fetchBookByIdAsync);
+        }
+        return results;
+    }
+    
+    private ExternalBookDTO fetchWithinBulkhead(Long id) throws InterruptedException {
+        parallelism.acquire();
+        try {
+            return fetchBookById(id);
+        } finally {
+            parallelism.release();
+        }
+    }
+    
+    // Cada intento pasa por el circuit breaker; el retry solo repite fallos de conexión y 5xx
+    // (ExternalApiRetryPredicate) con espera exponencial aleatoria, nunca un timeout de lectura ni un circuito abierto
+    private <T> T callExternalApi(Supplier<T> call) {
+        return Retry.decorateSupplier(retry, CircuitBreaker.decorateSupplier(circuitBreaker, call)).get();
+    }
+    
+    // Un 4xx es una respuesta válida de la API; solo la caída o el circuito abierto usan la copia
+    private static boolean isUnavailable(Exception e) {
+        return e instanceof CallNotPermittedException
+                || e instanceof ResourceAccessException
+                || e instanceof HttpServerErrorException;
+    }
+    
+    private void publishSnapshot(Path download) {
+        try {
+            snapshotStore.publish(download);
+        } catch (IOException e) {
+            log.warn("Could not update external catalog snapshot: {}", e.getMessage());
+        }
+    }
+    
+    private void saveSnapshot(List<ExternalBookDTO> books) {
+        try {
+            snapshotStore.save(new ByteArrayInputStream(objectMapper.writeValueAsBytes(books)));
+        } catch (IOException e) {
+            log.warn("Could not update external catalog snapshot: {}", e.getMessage());
+        }
+    }
+    
+    private Optional<List<ExternalBookDTO>> readSnapshot() {
+        return snapshotStore.latest().map(snapshot -> {
+            List<ExternalBookDTO> books = new ArrayList<>();
+            readBooks(snapshot, 500, books::addAll);
+            return books;
+        });
+    }
+    
+    // Recorre la copia en streaming y se detiene en el primer libro con ese ID, sin cargar el catálogo
+    private Optional<ExternalBookDTO> findInSnapshot(Long id) {
+        Optional<Path> snapshot = snapshotStore.latest();
+        if (snapshot.isEmpty()) {
+            return Optional.empty();
+        }
+        try (InputStream body = Files.newInputStream(snapshot.get());
+             JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Se esperaba un arreglo JSON de libros");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                ExternalBookDTO book = bookReader.readValue(parser);
+                if (id.equals(book.getId())) {
+                    return Optional.of(book);
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn("Could not read snapshot {}: {}", snapshot.get(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    // Catálogo descargado a un temporal junto con sus validadores de caché HTTP
+    private static final class CatalogDownload {
+        
+        static final CatalogDownload NOT_MODIFIED = new CatalogDownload(null, null, null);
+        
+        private final Path file;
+        private final String eTag;
+        private final String lastModified;
+        
+        private CatalogDownload(Path file, String eTag, String lastModified) {
+            this.file = file;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+    }
 }
-
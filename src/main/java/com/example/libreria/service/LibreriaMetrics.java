@@ -0,0 +1,90 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.BookSyncResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Métricas de negocio; la latencia por método la registra @Timed en cada servicio
+@Component
+public class LibreriaMetrics {
+    
+    private final MeterRegistry registry;
+    private final Counter reservationsCreated;
+    private final Counter reservationsReturned;
+    private final Counter stockRejections;
+    private final Counter overdueSwept;
+    private final DistributionSummary booksPerSync;
+    
+    public LibreriaMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        // Un solo contador etiquetado: Prometheus reserva el sufijo _created
+        this.reservationsCreated = Counter.builder("libreria.reservations")
+                .description("Altas y devoluciones de reservas")
+                .tag("event", "created")
+                .register(registry);
+        this.reservationsReturned = Counter.builder("libreria.reservations")
+                .description("Altas y devoluciones de reservas")
+                .tag("event", "returned")
+                .register(registry);
+        this.stockRejections = Counter.builder("libreria.books.stock.rejections")
+                .description("Reservas rechazadas por falta de ejemplares disponibles")
+                .register(registry);
+        this.overdueSwept = Counter.builder("libreria.reservations.overdue.swept")
+                .description("Reservas marcadas como vencidas por el barrido programado")
+                .register(registry);
+        this.booksPerSync = DistributionSummary.builder("libreria.books.sync.books")
+                .description("Libros procesados por sincronización")
+                .baseUnit("books")
+                .register(registry);
+    }
+    
+    public void reservationCreated() {
+        reservationsCreated.increment();
+    }
+    
+    public void reservationCreated(int count) {
+        reservationsCreated.increment(count);
+    }
+    
+    public void reservationReturned() {
+        reservationsReturned.increment();
+    }
+    
+    public void reservationReturned(int count) {
+        reservationsReturned.increment(count);
+    }
+    
+    public void stockRejected() {
+        stockRejections.increment();
+    }
+    
+    public void stockRejected(int count) {
+        stockRejections.increment(count);
+    }
+    
+    public void overdueSwept(int count) {
+        overdueSwept.increment(count);
+    }
+    
+    public void syncCompleted(BookSyncResultDTO result) {
+        Timer.builder("libreria.books.sync")
+                .description("Duración de la sincronización con la API externa")
+                .tag("outcome", result.isNotModified() ? "not_modified" : "synced")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(result.getDurationMs(), TimeUnit.MILLISECONDS);
+        booksPerSync.record(result.getProcessed());
+        countSynced("created", result.getCreated());
+        countSynced("updated", result.getUpdated());
+        countSynced("unchanged", result.getUnchanged());
+    }
+    
+    private void countSynced(String result, int count) {
+        registry.counter("libreria.books.synced", "result", result).increment(count);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.libreria.service;
+
+import com.example.libreria.config.CacheConfig;
+import com.example.libreria.model.Reservation.ReservationStatus;
+import com.example.libreria.repository.ReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pasa a OVERDUE las reservas activas cuya fecha de devolución ya pasó. Trabaja por lotes acotados,
+// cada uno en su propia transacción, para no bloquear muchas filas a la vez ni alargar una transacción
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OverdueReservationSweeper {
+    
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    
+    private final ReservationRepository reservationRepository;
+    private final LibreriaMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    
+    @Value("${reservations.overdue-sweep.batch-size:" + DEFAULT_BATCH_SIZE + "}")
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    
+    @Scheduled(cron = "${reservations.overdue-sweep.cron:0 5 * * * *}")
+    public void scheduledSweep() {
+        sweep(LocalDate.now());
+    }
+    
+    // Devuelve cuántas reservas se marcaron; una reserva vence el día siguiente a expectedReturnDate
+    public int sweep(LocalDate today) {
+        AtomicInteger updated = new AtomicInteger();
+        int selected;
+        // Se sigue mientras el SELECT llene el lote: el UPDATE puede marcar menos si alguna se devolvió entre medio
+        do {
+            selected = transactionTemplate.execute(status -> sweepBatch(today, updated));
+        } while (selected == batchSize);
+        
+        int swept = updated.get();
+        if (swept > 0) {
+            // El UPDATE masivo no dice de qué usuarios eran las reservas: se descartan todos los resúmenes
+            Cache summaries = cacheManager.getCache(CacheConfig.USER_SUMMARIES_CACHE);
+            if (summaries != null) {
+                summaries.clear();
+            }
+            metrics.overdueSwept(swept);
+            log.info("Overdue sweep marked {} reservations as OVERDUE", swept);
+        }
+        return swept;
+    }
+    
+    // Devuelve cuántos IDs trajo el lote y suma en updated las filas que efectivamente cambiaron
+    private int sweepBatch(LocalDate today, AtomicInteger updated) {
+        List<Long> ids = reservationRepository.findIdsByStatusAndExpectedReturnDateBefore(
+                ReservationStatus.ACTIVE, today, PageRequest.ofSize(batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        updated.addAndGet(reservationRepository.updateStatus(ids, ReservationStatus.ACTIVE, ReservationStatus.OVERDUE));
+        return ids.size();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.libreria.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+// Tarifas de un lote de devoluciones en centavos. Los importes tienen escala 2 en la base, así que la
+// aritmética entera con redondeo HALF_UP da exactamente lo mismo que BigDecimal, sin crear objetos por
+// reserva. Los datos van en arreglos primitivos paralelos y se recorren en un único bucle sin ramas
+final class ReservationFeeCalculator {
+    
+    static final BigDecimal LATE_FEE_RATE = new BigDecimal("0.15"); // 15% del precio por día
+    
+    private static final long RATE_UNSCALED = LATE_FEE_RATE.unscaledValue().longValueExact();
+    private static final long RATE_DIVISOR = BigInteger.TEN.pow(LATE_FEE_RATE.scale()).longValueExact();
+    
+    private ReservationFeeCalculator() {
+    }
+    
+    static long toCents(BigDecimal amount) {
+        return amount != null ? amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact() : 0L;
+    }
+    
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+    
+    // lateFeeCents[i] = precio * 15% * días de demora; totalFeeCents[i] = tarifa diaria * días + multa.
+    // Con precision 10 en las columnas, los productos caben holgadamente en un long
+    static void computeFees(long[] dailyRateCents, int[] rentalDays, long[] bookPriceCents, long[] daysLate,
+                            long[] lateFeeCents, long[] totalFeeCents) {
+        for (int i = 0; i < dailyRateCents.length; i++) {
+            long lateFee = (bookPriceCents[i] * RATE_UNSCALED * Math.max(daysLate[i], 0L) + RATE_DIVISOR / 2) / RATE_DIVISOR;
+            lateFeeCents[i] = lateFee;
+            totalFeeCents[i] = dailyRateCents[i] * Math.max(rentalDays[i], 0) + lateFee;
+        }
+    }
+}
@@ -1,75 +1,152 @@
 package com.example.libreria.service;
 
-import com.example.libreria.dto.BookResponseDTO;
+import com.example.libreria.config.CacheConfig;
+import com.example.libreria.dto.CursorPageDTO;
+import com.example.libreria.dto.ReservationBatchItemDTO;
+import com.example.libreria.dto.ReservationBatchResultDTO;
 import com.example.libreria.dto.ReservationRequestDTO;
 import com.example.libreria.dto.ReservationResponseDTO;
+import com.example.libreria.dto.ReturnBatchResultDTO;
 import com.example.libreria.dto.ReturnBookRequestDTO;
+import com.example.libreria.dto.UserReservationSummaryDTO;
 import com.example.libreria.model.Book;
 import com.example.libreria.model.Reservation;
 import com.example.libreria.model.User;
 import com.example.libreria.repository.BookRepository;
 import com.example.libreria.repository.ReservationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "libreria.service", histogram = true)
 public class ReservationService {
     
-    private static final BigDecimal LATE_FEE_PERCENTAGE = new BigDecimal("0.15"); // 15% por día
+    private static final BigDecimal LATE_FEE_PERCENTAGE = ReservationFeeCalculator.LATE_FEE_RATE; // 15% por día
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
     
     private final ReservationRepository reservationRepository;
     private final BookRepository bookRepository;
     private final BookService bookService;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final LibreriaMetrics metrics;
+    private final CacheManager cacheManager;
     
+    @CacheEvict(cacheNames = CacheConfig.USER_SUMMARIES_CACHE, key = "#requestDTO.userId")
     @Transactional
     public ReservationResponseDTO createReservation(ReservationRequestDTO requestDTO) {
-
-        Reservation reservation = new Reservation();
         // Validar que el usuario existe
         User user = userService.getUserEntity(requestDTO.getUserId());
-        reservation.setUser(user);
-        // Validar que el libro existe y está disponible
-        BookResponseDTO bookResponseDTO = bookService.getBookByExternalId(requestDTO.getBookExternalId());
-        Book bookEntity = new Book();
-        bookEntity.setAuthorName(bookResponseDTO.getAuthorName());
-        bookEntity.setTitle(bookResponseDTO.getTitle());
-        bookEntity.setExternalId(bookResponseDTO.getExternalId());
-        bookEntity.setAvailableQuantity(bookResponseDTO.getAvailableQuantity());
-        bookEntity.setPrice(bookResponseDTO.getPrice());
-        bookEntity.setFirstPublishYear(bookResponseDTO.getFirstPublishYear());
-        bookEntity.setHasFulltext(bookResponseDTO.getHasFulltext());
-        if (bookEntity.getAvailableQuantity() <= 0) {
-            throw new RuntimeException("El libro no está disponible para reserva");
-        }
+        // Reservar un ejemplar con un UPDATE condicional: falla si el libro no existe o no hay stock
+        bookService.decreaseAvailableQuantity(requestDTO.getBookExternalId());
+        // Proxy sin consulta previa; se inicializa una única vez al leer el precio (los autores son lazy)
+        Book book = bookRepository.getReferenceById(requestDTO.getBookExternalId());
 
+        // Crear la reserva
+        Reservation saved = reservationRepository.save(newReservation(user, book, requestDTO));
+        metrics.reservationCreated();
+        return convertToDTO(saved);
+    }
+    
+    // Lote en una sola transacción: usuarios y libros se leen con una consulta cada uno, el stock se
+    // descuenta con un UPDATE por libro y los INSERT salen en batches JDBC. Cada elemento informa su
+    // propio resultado; los que fallan (usuario o libro inexistente, sin stock) no impiden los demás
+    @Transactional
+    public ReservationBatchResultDTO createReservations(List<ReservationRequestDTO> requests) {
+        ReservationBatchItemDTO[] results = new ReservationBatchItemDTO[requests.size()];
+        Map<Long, User> users = userService.getUserEntities(requests.stream()
+                .map(ReservationRequestDTO::getUserId)
+                .collect(Collectors.toSet()));
+        Map<Long, Book> books = bookRepository.findAllById(requests.stream()
+                        .map(ReservationRequestDTO::getBookExternalId)
+                        .collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Book::getExternalId, Function.identity()));
+        
+        // Índices agrupados por libro, en el orden en que llegaron: los primeros se quedan con el stock
+        Map<Long, List<Integer>> indexesByBook = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ReservationRequestDTO request = requests.get(i);
+            if (!users.containsKey(request.getUserId())) {
+                results[i] = new ReservationBatchItemDTO(i, false, null, "Usuario no encontrado con ID: " + request.getUserId());
+            } else if (!books.containsKey(request.getBookExternalId())) {
+                results[i] = new ReservationBatchItemDTO(i, false, null, "Libro no encontrado con ID externo: " + request.getBookExternalId());
+            } else {
+                indexesByBook.computeIfAbsent(request.getBookExternalId(), bookId -> new ArrayList<>()).add(i);
+            }
+        }
+        
+        List<Reservation> toSave = new ArrayList<>();
+        List<Integer> savedIndexes = new ArrayList<>();
+        for (Map.Entry<Long, List<Integer>> group : indexesByBook.entrySet()) {
+            List<Integer> indexes = group.getValue();
+            int granted = bookService.reserveAvailableQuantity(group.getKey(), indexes.size());
+            for (int k = 0; k < indexes.size(); k++) {
+                int index = indexes.get(k);
+                if (k >= granted) {
+                    results[index] = new ReservationBatchItemDTO(index, false, null, "No hay libros disponibles para reservar");
+                    continue;
+                }
+                ReservationRequestDTO request = requests.get(index);
+                toSave.add(newReservation(users.get(request.getUserId()), books.get(group.getKey()), request));
+                savedIndexes.add(index);
+            }
+        }
+        
+        List<Reservation> saved = reservationRepository.saveAll(toSave);
+        for (int j = 0; j < saved.size(); j++) {
+            int index = savedIndexes.get(j);
+            results[index] = new ReservationBatchItemDTO(index, true, convertToDTO(saved.get(j)), null);
+        }
+        evictUserSummaries(saved.stream().map(reservation -> reservation.getUser().getId()).collect(Collectors.toSet()));
+        metrics.reservationCreated(saved.size());
+        log.info("Batch reservation: {} of {} created", saved.size(), requests.size());
+        return new ReservationBatchResultDTO(requests.size(), saved.size(), requests.size() - saved.size(), List.of(results));
+    }
+    
+    private static Reservation newReservation(User user, Book book, ReservationRequestDTO requestDTO) {
+        Reservation reservation = new Reservation();
         reservation.setUser(user);
-        reservation.setBook(bookEntity);
+        reservation.setBook(book);
         reservation.setRentalDays(requestDTO.getRentalDays());
         reservation.setStartDate(requestDTO.getStartDate());
         reservation.setExpectedReturnDate(requestDTO.getStartDate().plusDays(requestDTO.getRentalDays()));
-        reservation.setDailyRate(bookEntity.getPrice());
-        reservation.setTotalFee(calculateTotalFee(bookEntity.getPrice(), requestDTO.getRentalDays()));
+        reservation.setDailyRate(book.getPrice());
+        reservation.setTotalFee(calculateTotalFee(book.getPrice(), requestDTO.getRentalDays()));
         reservation.setStatus(Reservation.ReservationStatus.ACTIVE);
-
-        // Crear la reserva
-        Reservation saved= reservationRepository.save(reservation);
-        // Reducir la cantidad disponible
-        bookService.decreaseAvailableQuantity(saved.getBook().getExternalId());
-
-        return convertToDTO(saved);
-
+        return reservation;
     }
     
     @Transactional
@@ -78,7 +155,8 @@ public class ReservationService {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new RuntimeException("Reserva no encontrada con ID: " + reservationId));
         
-        if (reservation.getStatus() != Reservation.ReservationStatus.ACTIVE) {
+        // Las vencidas (OVERDUE) siguen prestadas y se devuelven igual que las activas
+        if (reservation.getStatus() == Reservation.ReservationStatus.RETURNED) {
             throw new RuntimeException("La reserva ya fue devuelta");
         }
         
@@ -109,10 +187,86 @@ public class ReservationService {
         }
 
         Reservation saved = reservationRepository.save(reservation);
+        evictUserSummaries(List.of(reservation.getUser().getId()));
+        metrics.reservationReturned();
         return convertToDTO(saved);
 
     }
     
+    // Devoluciones en lote con la misma fecha: una consulta carga todas las reservas, las tarifas se
+    // calculan en centavos en una sola pasada, el stock se repone con un UPDATE por libro y los cambios
+    // de las reservas salen como UPDATE en batch al confirmar. Cada ID informa su propio resultado
+    @Transactional
+    public ReturnBatchResultDTO returnBooks(List<Long> reservationIds, LocalDate returnDate) {
+        Map<Long, Reservation> found = reservationRepository.findAllWithUserAndBookByIdIn(new HashSet<>(reservationIds)).stream()
+                .collect(Collectors.toMap(Reservation::getId, Function.identity()));
+        
+        ReservationBatchItemDTO[] results = new ReservationBatchItemDTO[reservationIds.size()];
+        List<Reservation> returning = new ArrayList<>();
+        List<Integer> returningIndexes = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < reservationIds.size(); i++) {
+            Long id = reservationIds.get(i);
+            Reservation reservation = found.get(id);
+            if (reservation == null) {
+                results[i] = new ReservationBatchItemDTO(i, false, null, "Reserva no encontrada con ID: " + id);
+            } else if (!seen.add(id) || reservation.getStatus() == Reservation.ReservationStatus.RETURNED) {
+                results[i] = new ReservationBatchItemDTO(i, false, null, "La reserva ya fue devuelta");
+            } else {
+                returning.add(reservation);
+                returningIndexes.add(i);
+            }
+        }
+        
+        int count = returning.size();
+        long[] dailyRateCents = new long[count];
+        int[] rentalDays = new int[count];
+        long[] bookPriceCents = new long[count];
+        long[] daysLate = new long[count];
+        for (int j = 0; j < count; j++) {
+            Reservation reservation = returning.get(j);
+            dailyRateCents[j] = ReservationFeeCalculator.toCents(reservation.getDailyRate());
+            rentalDays[j] = reservation.getRentalDays() != null ? reservation.getRentalDays() : 0;
+            bookPriceCents[j] = ReservationFeeCalculator.toCents(reservation.getBook().getPrice());
+            LocalDate expected = reservation.getExpectedReturnDate();
+            daysLate[j] = expected != null && returnDate.isAfter(expected) ? ChronoUnit.DAYS.between(expected, returnDate) : 0;
+        }
+        long[] lateFeeCents = new long[count];
+        long[] totalFeeCents = new long[count];
+        ReservationFeeCalculator.computeFees(dailyRateCents, rentalDays, bookPriceCents, daysLate, lateFeeCents, totalFeeCents);
+        
+        // El stock se repone antes de marcar las reservas: las que excederían el stock fallan como en returnBook
+        Map<Long, Integer> returnedByBook = new LinkedHashMap<>();
+        for (Reservation reservation : returning) {
+            returnedByBook.merge(reservation.getBook().getExternalId(), 1, Integer::sum);
+        }
+        returnedByBook.replaceAll(bookService::releaseAvailableQuantity);
+        
+        int returned = 0;
+        long totalLateFeeCents = 0;
+        for (int j = 0; j < count; j++) {
+            Reservation reservation = returning.get(j);
+            int index = returningIndexes.get(j);
+            if (returnedByBook.merge(reservation.getBook().getExternalId(), -1, Integer::sum) < 0) {
+                results[index] = new ReservationBatchItemDTO(index, false, null, "La cantidad disponible no puede exceder el stock");
+                continue;
+            }
+            reservation.setActualReturnDate(returnDate);
+            reservation.setLateFee(ReservationFeeCalculator.fromCents(lateFeeCents[j]));
+            reservation.setTotalFee(ReservationFeeCalculator.fromCents(totalFeeCents[j]));
+            reservation.setStatus(Reservation.ReservationStatus.RETURNED);
+            totalLateFeeCents += lateFeeCents[j];
+            returned++;
+            results[index] = new ReservationBatchItemDTO(index, true, convertToDTO(reservation), null);
+        }
+        evictUserSummaries(returning.stream().map(reservation -> reservation.getUser().getId()).collect(Collectors.toSet()));
+        
+        metrics.reservationReturned(returned);
+        log.info("Batch return: {} of {} returned", returned, reservationIds.size());
+        return new ReturnBatchResultDTO(reservationIds.size(), returned, reservationIds.size() - returned,
+                ReservationFeeCalculator.fromCents(totalLateFeeCents), List.of(results));
+    }
+    
     @Transactional(readOnly = true)
     public ReservationResponseDTO getReservationById(Long id) {
         Reservation reservation = reservationRepository.findById(id)
@@ -121,36 +275,93 @@ public class ReservationService {
     }
     
     @Transactional(readOnly = true)
-    public List<ReservationResponseDTO> getAllReservations() {
-        return reservationRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<ReservationResponseDTO> getAllReservations(Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        return toPage(reservationRepository.findAllResponses(afterId(after), PageRequest.ofSize(pageSize)), pageSize);
     }
     
     @Transactional(readOnly = true)
-    public List<ReservationResponseDTO> getReservationsByUserId(Long userId) {
-        return reservationRepository.findByUserId(userId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<ReservationResponseDTO> getReservationsByUserId(Long userId, Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        return toPage(reservationRepository.findResponsesByUserId(userId, afterId(after), PageRequest.ofSize(pageSize)), pageSize);
     }
     
     @Transactional(readOnly = true)
-    public List<ReservationResponseDTO> getActiveReservations() {
-        return reservationRepository.findByStatus(Reservation.ReservationStatus.ACTIVE).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public CursorPageDTO<ReservationResponseDTO> getActiveReservations(Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        return toPage(reservationRepository.findResponsesByStatus(
+                Reservation.ReservationStatus.ACTIVE, afterId(after), PageRequest.ofSize(pageSize)), pageSize);
     }
     
+    // El estado OVERDUE lo asigna OverdueReservationSweeper en cada corrida (cada hora por defecto). Hasta
+    // entonces, una reserva que venció sigue ACTIVE en la base: se incluye igual y se informa con ese estado
     @Transactional(readOnly = true)
-    public List<ReservationResponseDTO> getOverdueReservations() {
-
-        return reservationRepository.findByStatusAndExpectedReturnDateBefore(Reservation.ReservationStatus.ACTIVE, LocalDate.now()).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
-
+    public CursorPageDTO<ReservationResponseDTO> getOverdueReservations(Long after, Integer limit) {
+        int pageSize = pageSize(limit);
+        return toPage(reservationRepository.findOverdueResponses(
+                LocalDate.now(), afterId(after), PageRequest.ofSize(pageSize)), pageSize);
+    }
+    
+    // Totales del usuario con un solo GROUP BY; queda en caché hasta que el usuario reserve o devuelva
+    @Cacheable(cacheNames = CacheConfig.USER_SUMMARIES_CACHE, key = "#userId")
+    @Transactional(readOnly = true)
+    public UserReservationSummaryDTO getUserSummary(Long userId) {
+        return reservationRepository.summarizeByUserId(userId).orElseGet(() -> {
+            // Sin reservas no hay fila agregada: se valida que el usuario exista y el resumen va en cero
+            userService.getUserEntity(userId);
+            BigDecimal zero = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+            return new UserReservationSummaryDTO(userId, 0, 0, zero, zero, null);
+        });
+    }
+    
+    // Escribe todas las reservas como NDJSON (una por línea) recorriendo un cursor, con memoria constante
+    @Transactional(readOnly = true)
+    public void exportReservations(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(ReservationResponseDTO.class);
+        int written = 0;
+        try (Stream<Reservation> reservations = reservationRepository.streamAllWithUserAndBook()) {
+            Iterator<Reservation> iterator = reservations.iterator();
+            while (iterator.hasNext()) {
+                out.write(writer.writeValueAsBytes(convertToDTO(iterator.next())));
+                out.write('\n');
+                if (++written % ReservationRepository.EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        log.info("Exported {} reservations", written);
+    }
+    
+    // Con TransactionAwareCacheManagerProxy el evict se aplica al confirmar la transacción
+    private void evictUserSummaries(Collection<Long> userIds) {
+        Cache summaries = cacheManager.getCache(CacheConfig.USER_SUMMARIES_CACHE);
+        if (summaries != null) {
+            userIds.forEach(summaries::evict);
+        }
+    }
+    
+    private static int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0) {
+            throw new RuntimeException("El límite de la página debe ser positivo");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+    
+    private static Long afterId(Long after) {
+        return after != null ? after : 0L;
+    }
+    
+    private static CursorPageDTO<ReservationResponseDTO> toPage(List<ReservationResponseDTO> content, int pageSize) {
+        String nextCursor = content.size() == pageSize ? String.valueOf(content.get(content.size() - 1).getId()) : null;
+        return new CursorPageDTO<>(content, pageSize, nextCursor);
     }
     
-    private BigDecimal calculateTotalFee(BigDecimal dailyRate, Integer rentalDays) {
+    static BigDecimal calculateTotalFee(BigDecimal dailyRate, Integer rentalDays) {
 
         if (dailyRate == null || rentalDays == null || rentalDays <= 0) {
             return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
@@ -158,7 +369,7 @@ public class ReservationService {
         return dailyRate.multiply(BigDecimal.valueOf(rentalDays)).setScale(2, RoundingMode.HALF_UP);
     }
     
-    private BigDecimal calculateLateFee(BigDecimal bookPrice, long daysLate) {
+    static BigDecimal calculateLateFee(BigDecimal bookPrice, long daysLate) {
         if (bookPrice == null || daysLate <= 0) {
             return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
         }
@@ -1,20 +1,27 @@
 package com.example.libreria.service;
 
+import com.example.libreria.config.CacheConfig;
 import com.example.libreria.dto.UserRequestDTO;
 import com.example.libreria.dto.UserResponseDTO;
 import com.example.libreria.model.User;
 import com.example.libreria.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "libreria.service", histogram = true)
 public class UserService {
     
     private final UserRepository userRepository;
@@ -69,6 +76,7 @@ public class UserService {
         return convertToDTO(updatedUser);
     }
     
+    @CacheEvict(cacheNames = CacheConfig.USER_SUMMARIES_CACHE, key = "#id")
     @Transactional
     public void deleteUser(Long id) {
         if (!userRepository.existsById(id)) {
@@ -84,6 +92,13 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + id));
     }
     
+    // Usuarios existentes entre los IDs pedidos, en una sola consulta
+    @Transactional(readOnly = true)
+    public Map<Long, User> getUserEntities(Collection<Long> ids) {
+        return userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+    
     private UserResponseDTO convertToDTO(User user) {
         UserResponseDTO dto = new UserResponseDTO();
         dto.setId(user.getId());
@@ -0,0 +1,65 @@
+-- Esquema inicial (perfil prod). Debe coincidir con las entidades: Hibernate lo valida al arrancar (ddl-auto: validate)
+
+CREATE TABLE users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    phone_number VARCHAR(255),
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE books (
+    external_id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    first_publish_year INTEGER,
+    edition_count INTEGER,
+    has_fulltext BOOLEAN,
+    price NUMERIC(10, 2) NOT NULL,
+    content_hash VARCHAR(64),
+    stock_quantity INTEGER NOT NULL,
+    available_quantity INTEGER NOT NULL,
+    PRIMARY KEY (external_id)
+);
+
+CREATE TABLE book_authors (
+    book_id BIGINT NOT NULL,
+    author_name VARCHAR(255),
+    CONSTRAINT fk_book_authors_book FOREIGN KEY (book_id) REFERENCES books (external_id)
+);
+
+-- Bloques de 50 IDs, igual que allocationSize en Reservation
+CREATE SEQUENCE reservations_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE reservations (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    book_external_id BIGINT NOT NULL,
+    rental_days INTEGER NOT NULL,
+    start_date DATE NOT NULL,
+    expected_return_date DATE NOT NULL,
+    actual_return_date DATE,
+    daily_rate NUMERIC(10, 2) NOT NULL,
+    total_fee NUMERIC(10, 2),
+    late_fee NUMERIC(10, 2),
+    status ENUM('ACTIVE', 'OVERDUE', 'RETURNED') NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_reservations_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_reservations_book FOREIGN KEY (book_external_id) REFERENCES books (external_id)
+);
+
+-- Usuarios: búsqueda por email y unicidad
+CREATE UNIQUE INDEX idx_users_email ON users (email);
+
+-- Catálogo paginado por keyset: (campo de orden, external_id)
+CREATE INDEX idx_books_title ON books (title, external_id);
+CREATE INDEX idx_books_price ON books (price, external_id);
+CREATE INDEX idx_books_first_publish_year ON books (first_publish_year);
+CREATE INDEX idx_books_available_quantity ON books (available_quantity);
+CREATE INDEX idx_book_authors_book_id ON book_authors (book_id);
+
+-- Reservas por usuario, por libro y barrido de vencidas
+CREATE INDEX idx_reservations_user_id ON reservations (user_id);
+CREATE INDEX idx_reservations_book_external_id ON reservations (book_external_id);
+CREATE INDEX idx_reservations_status_expected_return ON reservations (status, expected_return_date);
@@ -0,0 +1,59 @@
+package com.example.libreria;
+
+import com.example.libreria.dto.UserRequestDTO;
+import com.example.libreria.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Perfil prod contra una base H2 en archivo nueva: Flyway crea el esquema y Hibernate lo valida al arrancar
+@SpringBootTest
+@ActiveProfiles("prod")
+class ProdProfileIntegrationTest {
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void dataDir(DynamicPropertyRegistry registry) {
+        registry.add("libreria.h2.data-dir", () -> dataDir.toString());
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void testMigrations_CreateSchemaWithIndexesInFileDatabase() {
+        assertTrue(Files.exists(dataDir.resolve("libreria_db.mv.db")));
+        assertEquals(List.of("1"), jdbcTemplate.queryForList(
+                "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL AND \"success\" = TRUE", String.class));
+
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_SCHEMA = 'PUBLIC'", String.class);
+        assertTrue(indexes.containsAll(List.of("IDX_USERS_EMAIL", "IDX_RESERVATIONS_USER_ID",
+                "IDX_RESERVATIONS_BOOK_EXTERNAL_ID", "IDX_RESERVATIONS_STATUS_EXPECTED_RETURN")), indexes.toString());
+        assertEquals("65536", jdbcTemplate.queryForObject(
+                "SELECT SETTING_VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE SETTING_NAME = 'CACHE_SIZE'", String.class));
+
+        // Sin data.sql: la base arranca vacía y el índice único rechaza emails repetidos
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        userService.createUser(new UserRequestDTO("Prod", "prod@example.com", null));
+        assertThrows(DuplicateKeyException.class, () -> jdbcTemplate.update(
+                "INSERT INTO users (name, email, created_at) VALUES ('Otro', 'prod@example.com', CURRENT_TIMESTAMP)"));
+    }
+}
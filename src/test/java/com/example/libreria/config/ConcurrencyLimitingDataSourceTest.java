@@ -0,0 +1,53 @@
+package com.example.libreria.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConcurrencyLimitingDataSourceTest {
+    
+    @Mock
+    private DataSource target;
+    
+    @Mock
+    private Connection connection;
+    
+    @Test
+    void testGetConnection_RejectsBeyondLimitUntilClosed() throws Exception {
+        when(target.getConnection()).thenReturn(connection);
+        ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, 1, Duration.ofMillis(50));
+        
+        Connection first = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        
+        first.close();
+        first.close();
+        assertEquals(1, dataSource.getAvailablePermits());
+        
+        Connection second = dataSource.getConnection();
+        assertEquals(0, dataSource.getAvailablePermits());
+        second.close();
+        verify(connection, times(3)).close();
+    }
+    
+    @Test
+    void testGetConnection_ReleasesPermitWhenTargetFails() throws Exception {
+        when(target.getConnection()).thenThrow(new SQLException("pool agotado"));
+        ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(target, 2, Duration.ofMillis(50));
+        
+        assertThrows(SQLException.class, dataSource::getConnection);
+        
+        assertEquals(2, dataSource.getAvailablePermits());
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.libreria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolConfigTest {
+    
+    @Test
+    void testPoolSize_ScalesWithCores() {
+        assertEquals(9, ConnectionPoolConfig.poolSize(4, 2, 1));
+        assertEquals(17, ConnectionPoolConfig.poolSize(16, 1, 1));
+        assertEquals(1, ConnectionPoolConfig.poolSize(1, 0, 0));
+    }
+    
+    @Test
+    void testConnectionPoolSizer_AppliesUnlessMaximumPoolSizeIsExplicit() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("libreria.datasource.pool.connections-per-core", "3")
+                .withProperty("libreria.datasource.pool.spindles", "2");
+        int expected = Runtime.getRuntime().availableProcessors() * 3 + 2;
+        
+        try (HikariDataSource hikari = new HikariDataSource()) {
+            ConnectionPoolConfig.connectionPoolSizer(environment).postProcessBeforeInitialization(hikari, "dataSource");
+            assertEquals(expected, hikari.getMaximumPoolSize());
+        }
+        
+        environment.setProperty(ConnectionPoolConfig.MAXIMUM_POOL_SIZE, "5");
+        BeanPostProcessor sizer = ConnectionPoolConfig.connectionPoolSizer(environment);
+        try (HikariDataSource hikari = new HikariDataSource()) {
+            hikari.setMaximumPoolSize(5);
+            sizer.postProcessBeforeInitialization(hikari, "dataSource");
+            assertEquals(5, hikari.getMaximumPoolSize());
+        }
+    }
+    
+    @Test
+    void testConnectionPoolSizer_RespectsRelaxedMaximumPoolSize() {
+        MockEnvironment camelCase = new MockEnvironment()
+                .withProperty("spring.datasource.hikari.maximumPoolSize", "5");
+        MockEnvironment envVar = new MockEnvironment();
+        envVar.getPropertySources().addFirst(new SystemEnvironmentPropertySource(
+                StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+                Map.<String, Object>of("SPRING_DATASOURCE_HIKARI_MAXIMUMPOOLSIZE", "5")));
+        
+        for (MockEnvironment environment : List.of(camelCase, envVar)) {
+            try (HikariDataSource hikari = new HikariDataSource()) {
+                hikari.setMaximumPoolSize(5);
+                ConnectionPoolConfig.connectionPoolSizer(environment).postProcessBeforeInitialization(hikari, "dataSource");
+                assertEquals(5, hikari.getMaximumPoolSize());
+            }
+        }
+    }
+}
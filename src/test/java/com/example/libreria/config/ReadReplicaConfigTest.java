@@ -0,0 +1,57 @@
+package com.example.libreria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadReplicaConfigTest {
+    
+    @Test
+    void testReadReplicaRouter_ReadOnlyTransactionsUseReplica() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("libreria.datasource.replica.url", "jdbc:h2:mem:replica_router;DB_CLOSE_DELAY=-1")
+                .withProperty("libreria.datasource.replica.username", "sa")
+                .withProperty("libreria.datasource.replica.hikari.maximum-pool-size", "2");
+        HikariDataSource primary = new HikariDataSource();
+        primary.setJdbcUrl("jdbc:h2:mem:primary_router;DB_CLOSE_DELAY=-1");
+        
+        BeanPostProcessor router = ReadReplicaConfig.readReplicaRouter(environment);
+        Object routed = router.postProcessAfterInitialization(primary, "dataSource");
+        
+        ReadReplicaDataSource dataSource = assertInstanceOf(ReadReplicaDataSource.class, routed);
+        HikariDataSource replica = assertInstanceOf(HikariDataSource.class, dataSource.getReplica());
+        assertEquals(2, replica.getMaximumPoolSize());
+        assertEquals("libreria-replica", replica.getPoolName());
+        assertEquals("PRIMARY_ROUTER", currentDatabase(dataSource, false));
+        assertEquals("REPLICA_ROUTER", currentDatabase(dataSource, true));
+        
+        // Al cerrarse el contexto el router cierra la réplica; el primario lo cierra Spring como bean
+        ((DisposableBean) router).destroy();
+        assertTrue(replica.isClosed());
+        assertFalse(primary.isClosed());
+        primary.close();
+    }
+    
+    @Test
+    void testReadReplicaRouter_WithoutReplicaUrlKeepsDataSource() {
+        try (HikariDataSource primary = new HikariDataSource()) {
+            assertSame(primary, ReadReplicaConfig.readReplicaRouter(new MockEnvironment())
+                    .postProcessAfterInitialization(primary, "dataSource"));
+        }
+    }
+    
+    private static String currentDatabase(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setReadOnly(readOnly);
+        return transactionTemplate.execute(status -> new JdbcTemplate(dataSource).queryForObject("SELECT DATABASE()", String.class));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.libreria.config;
+
+import com.example.libreria.dto.ExternalBookDTO;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestTemplateConfigTest {
+
+    private static final String BOOK_JSON = "{\"id\":258027,\"title\":\"The Lord of the Rings\",\"price\":15.99}";
+
+    private final RestTemplateConfig config = new RestTemplateConfig();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final List<String> acceptEncodings = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/books", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            acceptEncodings.add(acceptEncoding != null ? acceptEncoding : "");
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                    out.write(BOOK_JSON.getBytes(StandardCharsets.UTF_8));
+                }
+            } else {
+                byte[] body = BOOK_JSON.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + "/books/{id}";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testClientHttpRequestFactory_SelectsConfiguredClient() throws Exception {
+        ExternalApiHttpProperties properties = new ExternalApiHttpProperties();
+
+        properties.setClient(ExternalApiHttpProperties.Client.SIMPLE);
+        assertInstanceOf(SimpleClientHttpRequestFactory.class, config.clientHttpRequestFactory(properties));
+        properties.setClient(ExternalApiHttpProperties.Client.JDK);
+        assertInstanceOf(JdkClientHttpRequestFactory.class, config.clientHttpRequestFactory(properties));
+        properties.setClient(ExternalApiHttpProperties.Client.APACHE);
+        ClientHttpRequestFactory apache = config.clientHttpRequestFactory(properties);
+        assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, apache);
+        ((DisposableBean) apache).destroy();
+    }
+
+    @Test
+    void testApacheClient_ReusesConnectionAndDecodesGzip() throws Exception {
+        ExternalApiHttpProperties properties = new ExternalApiHttpProperties();
+        ClientHttpRequestFactory factory = config.clientHttpRequestFactory(properties);
+        RestTemplate restTemplate = new RestTemplate(factory);
+
+        for (long id = 1; id <= 5; id++) {
+            ExternalBookDTO book = restTemplate.getForObject(baseUrl, ExternalBookDTO.class, id);
+            assertNotNull(book);
+            assertEquals("The Lord of the Rings", book.getTitle());
+        }
+
+        // Las cinco peticiones viajan por la misma conexión del pool, con respuesta comprimida
+        assertEquals(1, clientPorts.size());
+        assertTrue(acceptEncodings.stream().allMatch(encoding -> encoding.contains("gzip")));
+        ((DisposableBean) factory).destroy();
+    }
+
+    @Test
+    void testApacheClient_GzipDisabled() throws Exception {
+        ExternalApiHttpProperties properties = new ExternalApiHttpProperties();
+        properties.setGzip(false);
+        ClientHttpRequestFactory factory = config.clientHttpRequestFactory(properties);
+
+        ExternalBookDTO book = new RestTemplate(factory).getForObject(baseUrl, ExternalBookDTO.class, 1L);
+
+        assertEquals(258027L, book.getId());
+        assertFalse(acceptEncodings.get(0).contains("gzip"));
+        ((DisposableBean) factory).destroy();
+    }
+
+    @Test
+    void testExternalApiExecutor_SizedByMaxParallelism() {
+        MockEnvironment environment = new MockEnvironment().withProperty("external.api.books.max-parallelism", "3");
+
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) config.externalApiExecutor(environment);
+
+        assertEquals(3, executor.getCorePoolSize());
+        assertEquals(3, executor.getMaxPoolSize());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.libreria.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.example.libreria.dto.SqlStatementStatsDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryLoggingDataSourceTest {
+
+    private static final String INSERT = "INSERT INTO items (id, name) VALUES (?, ?)";
+    private static final String SELECT = "SELECT id, name FROM items WHERE id <= ?";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SqlStatementStats stats = new SqlStatementStats(10);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger slowQueryLogger = (Logger) LoggerFactory.getLogger("libreria.sql.slow");
+    private JdbcDataSource h2;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:slow_query_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(20))");
+        }
+        appender.start();
+        slowQueryLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowQueryLogger.detachAppender(appender);
+    }
+
+    @Test
+    void testSlowStatements_LoggedAsJsonWithCaller() throws Exception {
+        SlowQueryLoggingDataSource dataSource = new SlowQueryLoggingDataSource(h2, stats, Duration.ZERO);
+
+        try (Connection connection = dataSource.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                for (int id = 1; id <= 3; id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "item-" + id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            try (PreparedStatement select = connection.prepareStatement(SELECT)) {
+                select.setInt(1, 2);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getString("name");
+                    }
+                }
+            }
+        }
+
+        assertEquals(2, appender.list.size());
+        JsonNode batch = objectMapper.readTree(appender.list.get(0).getFormattedMessage());
+        assertEquals(INSERT, batch.get("statement").asText());
+        assertEquals(6, batch.get("binds").asInt());
+        assertEquals(3, batch.get("rows").asLong());
+        // Las filas de una consulta se cuentan al recorrer el ResultSet, hasta cerrarlo
+        JsonNode query = objectMapper.readTree(appender.list.get(1).getFormattedMessage());
+        assertEquals(SELECT, query.get("statement").asText());
+        assertEquals(1, query.get("binds").asInt());
+        assertEquals(2, query.get("rows").asLong());
+        assertTrue(query.get("durationMs").asDouble() >= 0);
+        assertEquals("SlowQueryLoggingDataSourceTest.testSlowStatements_LoggedAsJsonWithCaller", query.get("caller").asText());
+    }
+
+    @Test
+    void testFastStatements_OnlyAggregated() throws Exception {
+        SlowQueryLoggingDataSource dataSource = new SlowQueryLoggingDataSource(h2, stats, Duration.ofMinutes(1));
+
+        try (Connection connection = dataSource.getConnection()) {
+            for (int id = 1; id <= 4; id++) {
+                try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                    insert.setInt(1, id);
+                    insert.setString(2, "item-" + id);
+                    insert.executeUpdate();
+                }
+            }
+            try (PreparedStatement select = connection.prepareStatement(SELECT)) {
+                select.setInt(1, 10);
+                // Sin cerrar el ResultSet: la consulta se registra al cerrar el statement
+                ResultSet resultSet = select.executeQuery();
+                while (resultSet.next()) {
+                    resultSet.getInt("id");
+                }
+            }
+        }
+
+        assertTrue(appender.list.isEmpty());
+        Map<String, SqlStatementStatsDTO> byStatement = stats.snapshot().stream()
+                .collect(Collectors.toMap(SqlStatementStatsDTO::getStatement, Function.identity()));
+        assertEquals(4, byStatement.get(INSERT).getExecutions());
+        assertEquals(4, byStatement.get(INSERT).getRows());
+        assertEquals(1, byStatement.get(SELECT).getExecutions());
+        assertEquals(4, byStatement.get(SELECT).getRows());
+        assertEquals(0, byStatement.get(SELECT).getSlowExecutions());
+    }
+
+    @Test
+    void testStats_BoundedNumberOfStatements() {
+        SqlStatementStats bounded = new SqlStatementStats(2);
+        for (int i = 0; i < 4; i++) {
+            bounded.record("SELECT " + i, 1_000_000L * (i + 1), 1, false);
+        }
+        bounded.record("SELECT 1", 5_000_000L, 1, true);
+
+        List<SqlStatementStatsDTO> statements = bounded.snapshot();
+        assertEquals(List.of("SELECT 1", "SELECT 0"), statements.stream().map(SqlStatementStatsDTO::getStatement).toList());
+        assertEquals(7.0, statements.get(0).getTotalMs(), 1e-9);
+        assertEquals(5.0, statements.get(0).getMaxMs(), 1e-9);
+        assertEquals(1, statements.get(0).getSlowExecutions());
+        assertEquals(2, bounded.getDropped());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.BookResponseDTO;
+import com.example.libreria.dto.CacheStatsDTO;
+import com.example.libreria.model.Book;
+import com.example.libreria.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class BookCacheIntegrationTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Test
+    void testGetBookByExternalId_SecondLookupIsCacheHit() {
+        Long externalId = createBook(930001L, 5);
+        CacheStatsDTO before = bookService.getCacheStats();
+
+        BookResponseDTO first = bookService.getBookByExternalId(externalId);
+        BookResponseDTO second = bookService.getBookByExternalId(externalId);
+
+        CacheStatsDTO after = bookService.getCacheStats();
+        assertEquals(first, second);
+        assertEquals(before.getMissCount() + 1, after.getMissCount());
+        assertEquals(before.getHitCount() + 1, after.getHitCount());
+    }
+
+    @Test
+    void testDecreaseAvailableQuantity_EvictsCachedBook() {
+        Long externalId = createBook(930002L, 5);
+        assertEquals(5, bookService.getBookByExternalId(externalId).getAvailableQuantity());
+
+        bookService.decreaseAvailableQuantity(externalId);
+
+        assertEquals(4, bookService.getBookByExternalId(externalId).getAvailableQuantity());
+    }
+
+    @Test
+    void testUpdateStock_RefreshesCachedBook() {
+        Long externalId = createBook(930003L, 5);
+        bookService.getBookByExternalId(externalId);
+        CacheStatsDTO before = bookService.getCacheStats();
+
+        bookService.updateStock(externalId, 8);
+        BookResponseDTO cached = bookService.getBookByExternalId(externalId);
+
+        assertEquals(8, cached.getStockQuantity());
+        assertEquals(8, cached.getAvailableQuantity());
+        assertEquals(before.getHitCount() + 1, bookService.getCacheStats().getHitCount());
+    }
+
+    private Long createBook(Long externalId, int stock) {
+        Book book = new Book();
+        book.setExternalId(externalId);
+        book.setTitle("Libro en caché " + externalId);
+        book.setPrice(new BigDecimal("12.00"));
+        book.setStockQuantity(stock);
+        book.setAvailableQuantity(stock);
+        book.setNew(true);
+        return bookRepository.save(book).getExternalId();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.BookFilterDTO;
+import com.example.libreria.dto.BookResponseDTO;
+import com.example.libreria.dto.CursorPageDTO;
+import com.example.libreria.model.Book;
+import com.example.libreria.repository.BookRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:libreria_statistics_db"
+})
+class BookCatalogIntegrationTest {
+    
+    private static final String AUTHOR = "Autora Catálogo";
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (bookRepository.existsByExternalId(920001L)) {
+            return;
+        }
+        // Precios repetidos a propósito para ejercitar el desempate por externalId
+        String[] prices = {"12.00", "9.50", "12.00", "30.00", "15.75", "12.00", "8.25"};
+        for (int i = 0; i < prices.length; i++) {
+            Book book = new Book();
+            book.setExternalId(920001L + i);
+            book.setTitle("Catálogo " + (char) ('G' - i));
+            book.setAuthorName(List.of(AUTHOR, "Coautor " + i));
+            book.setFirstPublishYear(1950 + i * 10);
+            book.setPrice(new BigDecimal(prices[i]));
+            book.setStockQuantity(5);
+            book.setAvailableQuantity(i % 3 == 0 ? 0 : 5);
+            book.setNew(true);
+            bookRepository.save(book);
+        }
+    }
+    
+    @Test
+    void testSearchBooks_KeysetByPriceVisitsEveryBookOnce() {
+        BookFilterDTO filter = new BookFilterDTO();
+        filter.setAuthor("autora catál");
+        filter.setSort("price");
+        filter.setLimit(3);
+        
+        List<BookResponseDTO> seen = new ArrayList<>();
+        do {
+            CursorPageDTO<BookResponseDTO> page = bookService.searchBooks(filter);
+            seen.addAll(page.getContent());
+            filter.setAfter(page.getNextCursor());
+        } while (filter.getAfter() != null);
+        
+        assertEquals(7, seen.size());
+        assertEquals(7, seen.stream().map(BookResponseDTO::getExternalId).distinct().count());
+        for (int i = 1; i < seen.size(); i++) {
+            BookResponseDTO previous = seen.get(i - 1);
+            BookResponseDTO current = seen.get(i);
+            int byPrice = previous.getPrice().compareTo(current.getPrice());
+            assertTrue(byPrice < 0 || (byPrice == 0 && previous.getExternalId() < current.getExternalId()));
+        }
+    }
+    
+    @Test
+    void testSearchBooks_FiltersAndBatchFetchedAuthors() {
+        BookFilterDTO filter = new BookFilterDTO();
+        filter.setAuthor(AUTHOR);
+        filter.setMinYear(1960);
+        filter.setMaxYear(2010);
+        filter.setMaxPrice(new BigDecimal("20.00"));
+        filter.setInStock(true);
+        filter.setSort("title");
+        filter.setDirection("desc");
+        
+        statistics.clear();
+        CursorPageDTO<BookResponseDTO> page = bookService.searchBooks(filter);
+        
+        // Un SELECT para la página y uno para los autores de todos sus libros
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertNull(page.getNextCursor());
+        List<Long> ids = page.getContent().stream().map(BookResponseDTO::getExternalId).toList();
+        assertEquals(List.of(920002L, 920003L, 920005L, 920006L), ids);
+        assertTrue(page.getContent().get(0).getAuthorName().contains(AUTHOR));
+    }
+    
+    @Test
+    void testSearchBooks_RejectsUnknownSortField() {
+        BookFilterDTO filter = new BookFilterDTO();
+        filter.setSort("stockQuantity");
+        
+        assertThrows(RuntimeException.class, () -> bookService.searchBooks(filter));
+    }
+}
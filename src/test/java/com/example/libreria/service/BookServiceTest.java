@@ -1,23 +1,36 @@
 package com.example.libreria.service;
 
+import com.example.libreria.config.CacheConfig;
 import com.example.libreria.dto.BookResponseDTO;
+import com.example.libreria.dto.BookSyncResultDTO;
 import com.example.libreria.dto.ExternalBookDTO;
 import com.example.libreria.model.Book;
 import com.example.libreria.repository.BookRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +42,18 @@ class BookServiceTest {
     @Mock
     private ExternalBookService externalBookService;
     
+    @Mock
+    private EntityManager entityManager;
+    
+    @Mock
+    private LibreriaMetrics metrics;
+    
+    @Mock
+    private CacheManager cacheManager;
+    
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    
     @InjectMocks
     private BookService bookService;
     
@@ -50,40 +75,115 @@ class BookServiceTest {
         externalBookDTO.setPrice(new BigDecimal("15.99"));
     }
     
+    private void stubExternalBooks(ExternalBookDTO... books) {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(externalBookService.streamAllBooks(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<ExternalBookDTO>> chunkConsumer = invocation.getArgument(1);
+            chunkConsumer.accept(Arrays.asList(books));
+            return true;
+        });
+    }
+    
+    private static BookRepository.ContentHash contentHash(Long externalId, String hash) {
+        return new BookRepository.ContentHash() {
+            @Override
+            public Long getExternalId() {
+                return externalId;
+            }
+            
+            @Override
+            public String getContentHash() {
+                return hash;
+            }
+        };
+    }
+    
     @Test
     void testSyncBooksFromExternalApi_NewBook() {
-        when(externalBookService.fetchAllBooks()).thenReturn(Arrays.asList(externalBookDTO));
-        when(bookRepository.findByExternalId(258027L)).thenReturn(Optional.empty());
-        when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+        stubExternalBooks(externalBookDTO);
+        when(bookRepository.findContentHashesByExternalIdIn(anyCollection())).thenReturn(List.of());
         
-        bookService.syncBooksFromExternalApi();
+        BookSyncResultDTO result = bookService.syncBooksFromExternalApi();
         
-        verify(bookRepository, times(1)).save(any(Book.class));
+        assertEquals(1, result.getCreated());
+        assertEquals(0, result.getUpdated());
+        verify(bookRepository, times(1)).saveAll(argThat(books -> {
+            Book saved = books.iterator().next();
+            return saved.isNew() && saved.getAvailableQuantity() == 10
+                    && BookFingerprint.of(externalBookDTO).equals(saved.getContentHash());
+        }));
+        verify(bookRepository, never()).findByExternalId(anyLong());
+        verify(metrics, times(1)).syncCompleted(result);
     }
     
     @Test
     void testSyncBooksFromExternalApi_ExistingBook() {
-        when(externalBookService.fetchAllBooks()).thenReturn(Arrays.asList(externalBookDTO));
-        when(bookRepository.findByExternalId(258027L)).thenReturn(Optional.of(testBook));
-        when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+        testBook.setContentHash(BookFingerprint.of(externalBookDTO));
+        externalBookDTO.setTitle("The Lord of the Rings (Edición ilustrada)");
+        stubExternalBooks(externalBookDTO);
+        when(bookRepository.findContentHashesByExternalIdIn(anyCollection()))
+                .thenReturn(List.of(contentHash(258027L, testBook.getContentHash())));
+        when(bookRepository.findByExternalIdIn(anyCollection())).thenReturn(List.of(testBook));
+        Cache booksCache = mock(Cache.class);
+        when(cacheManager.getCache(CacheConfig.BOOKS_CACHE)).thenReturn(booksCache);
         
-        bookService.syncBooksFromExternalApi();
+        BookSyncResultDTO result = bookService.syncBooksFromExternalApi();
         
-        verify(bookRepository, times(1)).save(any(Book.class));
+        assertEquals(0, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals("The Lord of the Rings (Edición ilustrada)", testBook.getTitle());
+        assertEquals(BookFingerprint.of(externalBookDTO), testBook.getContentHash());
+        verify(bookRepository, times(1)).saveAll(List.of(testBook));
+        verify(booksCache).evict(258027L);
     }
     
     @Test
-    void testGetAllBooks() {
-        Book book2 = new Book();
-        book2.setExternalId(140081L);
-        book2.setTitle("The Hitchhiker's Guide to the Galaxy");
+    void testSyncBooksFromExternalApi_UnchangedBook() {
+        stubExternalBooks(externalBookDTO);
+        when(bookRepository.findContentHashesByExternalIdIn(anyCollection()))
+                .thenReturn(List.of(contentHash(258027L, BookFingerprint.of(externalBookDTO))));
+        
+        BookSyncResultDTO result = bookService.syncBooksFromExternalApi();
         
-        when(bookRepository.findAll()).thenReturn(Arrays.asList(testBook, book2));
+        assertEquals(1, result.getUnchanged());
+        assertEquals(1, result.getProcessed());
+        verify(bookRepository, never()).findByExternalIdIn(anyCollection());
+        verify(bookRepository, times(1)).saveAll(List.of());
+    }
+    
+    @Test
+    void testSyncBooksFromExternalApi_CommitsAndReportsEachChunk() {
+        ExternalBookDTO second = new ExternalBookDTO();
+        second.setId(140081L);
+        second.setTitle("The Hitchhiker's Guide to the Galaxy");
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(externalBookService.streamAllBooks(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<List<ExternalBookDTO>> chunkConsumer = invocation.getArgument(1);
+            chunkConsumer.accept(List.of(externalBookDTO));
+            chunkConsumer.accept(List.of(second));
+            return true;
+        });
+        when(bookRepository.findContentHashesByExternalIdIn(anyCollection())).thenReturn(List.of());
+        List<Integer> processedAfterChunk = new ArrayList<>();
         
-        List<BookResponseDTO> result = bookService.getAllBooks();
+        BookSyncResultDTO result = bookService.syncBooksFromExternalApi(progress -> processedAfterChunk.add(progress.getProcessed()));
         
-        assertNotNull(result);
-        assertEquals(2, result.size());
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of(1, 2), processedAfterChunk);
+        verify(transactionTemplate, times(2)).execute(any());
+    }
+    
+    @Test
+    void testSyncBooksFromExternalApi_CatalogNotModified() {
+        when(externalBookService.streamAllBooks(anyInt(), any())).thenReturn(false);
+        
+        BookSyncResultDTO result = bookService.syncBooksFromExternalApi();
+        
+        assertTrue(result.isNotModified());
+        assertEquals(0, result.getProcessed());
+        verifyNoInteractions(bookRepository);
     }
     
     @Test
@@ -131,23 +231,64 @@ class BookServiceTest {
     
     @Test
     void testDecreaseAvailableQuantity_Success() {
-        when(bookRepository.findByExternalId(258027L)).thenReturn(Optional.of(testBook));
-        when(bookRepository.save(any(Book.class))).thenReturn(testBook);
+        when(bookRepository.decrementAvailableQuantity(258027L)).thenReturn(1);
         
         bookService.decreaseAvailableQuantity(258027L);
         
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(bookRepository, times(1)).decrementAvailableQuantity(258027L);
+        verify(bookRepository, never()).findByExternalId(anyLong());
+        verify(bookRepository, never()).save(any(Book.class));
     }
     
     @Test
     void testDecreaseAvailableQuantity_NoStock() {
-        testBook.setAvailableQuantity(0);
+        when(bookRepository.decrementAvailableQuantity(258027L)).thenReturn(0);
+        when(bookRepository.existsByExternalId(258027L)).thenReturn(true);
         
-        when(bookRepository.findByExternalId(258027L)).thenReturn(Optional.of(testBook));
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            bookService.decreaseAvailableQuantity(258027L);
+        });
+        assertEquals("No hay libros disponibles para reservar", exception.getMessage());
+        verify(metrics, times(1)).stockRejected();
+    }
+    
+    @Test
+    void testDecreaseAvailableQuantity_BookNotFound() {
+        when(bookRepository.decrementAvailableQuantity(258027L)).thenReturn(0);
+        when(bookRepository.existsByExternalId(258027L)).thenReturn(false);
         
-        assertThrows(RuntimeException.class, () -> {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             bookService.decreaseAvailableQuantity(258027L);
         });
+        assertEquals("Libro no encontrado con ID externo: 258027", exception.getMessage());
+        verify(metrics, never()).stockRejected();
+    }
+    
+    @Test
+    void testIncreaseAvailableQuantity_StockFull() {
+        when(bookRepository.incrementAvailableQuantity(258027L)).thenReturn(0);
+        when(bookRepository.existsByExternalId(258027L)).thenReturn(true);
+        
+        assertThrows(RuntimeException.class, () -> {
+            bookService.increaseAvailableQuantity(258027L);
+        });
+    }
+    
+    @Test
+    void testReserveAvailableQuantity_GrantsRemainingStock() {
+        when(bookRepository.decrementAvailableQuantityBy(258027L, 5)).thenReturn(0);
+        when(bookRepository.findAvailableQuantity(258027L)).thenReturn(Optional.of(2));
+        when(bookRepository.decrementAvailableQuantityBy(258027L, 2)).thenReturn(1);
+        
+        assertEquals(2, bookService.reserveAvailableQuantity(258027L, 5));
+        verify(metrics).stockRejected(3);
+    }
+    
+    @Test
+    void testReserveAvailableQuantity_BookNotFound() {
+        when(bookRepository.decrementAvailableQuantityBy(258027L, 2)).thenReturn(0);
+        when(bookRepository.findAvailableQuantity(258027L)).thenReturn(Optional.empty());
+        
+        assertEquals(0, bookService.reserveAvailableQuantity(258027L, 2));
     }
 }
-
@@ -0,0 +1,73 @@
+package com.example.libreria.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSnapshotStoreTest {
+    
+    private static final Instant NOW = Instant.parse("2026-10-16T12:00:00Z");
+    
+    @TempDir
+    private Path directory;
+    
+    private BookSnapshotStore store;
+    
+    @BeforeEach
+    void setUp() {
+        store = new BookSnapshotStore(directory, Duration.ofHours(24), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+    
+    @Test
+    void testSave_PublishesCatalogWithoutLeavingTemporaryFiles() throws Exception {
+        store.save(body("[{\"id\":1}]"));
+        
+        Path snapshot = store.latest().orElseThrow();
+        assertEquals("[{\"id\":1}]", Files.readString(snapshot));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(snapshot), files.toList());
+        }
+    }
+    
+    @Test
+    void testLatest_IgnoresSnapshotOlderThanMaxAge() throws Exception {
+        assertTrue(store.latest().isEmpty());
+        store.save(body("[]"));
+        Path snapshot = store.latest().orElseThrow();
+        
+        Files.setLastModifiedTime(snapshot, FileTime.from(NOW.minus(Duration.ofHours(25))));
+        assertTrue(store.latest().isEmpty());
+        
+        // Un 304 de la API confirma que la copia sigue vigente
+        store.touch();
+        assertEquals(snapshot, store.latest().orElseThrow());
+    }
+    
+    @Test
+    void testDiscard_RemovesUnpublishedDownload() throws Exception {
+        Path download = store.download(body("[{\"id\":2}]"));
+        
+        store.discard(download);
+        
+        assertFalse(Files.exists(download));
+        assertTrue(store.latest().isEmpty());
+    }
+    
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.libreria.service;
+
+import com.example.libreria.model.Book;
+import com.example.libreria.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class BookStockConcurrencyTest {
+    
+    private static final int PARALLEL_REQUESTS = 250;
+    private static final int STOCK = 40;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Test
+    void testDecreaseAvailableQuantity_NoOversellUnderContention() throws Exception {
+        Long externalId = createBook(900001L, STOCK, STOCK);
+        
+        int succeeded = runConcurrently(() -> bookService.tryDecreaseAvailableQuantity(externalId));
+        
+        assertEquals(STOCK, succeeded);
+        Book book = bookRepository.findByExternalId(externalId).orElseThrow();
+        assertEquals(0, book.getAvailableQuantity());
+    }
+    
+    @Test
+    void testIncreaseAvailableQuantity_NeverExceedsStockUnderContention() throws Exception {
+        Long externalId = createBook(900002L, STOCK, 0);
+        
+        int succeeded = runConcurrently(() -> bookService.tryIncreaseAvailableQuantity(externalId));
+        
+        assertEquals(STOCK, succeeded);
+        Book book = bookRepository.findByExternalId(externalId).orElseThrow();
+        assertEquals(STOCK, book.getAvailableQuantity());
+    }
+    
+    private Long createBook(Long externalId, int stock, int available) {
+        Book book = new Book();
+        book.setExternalId(externalId);
+        book.setTitle("Libro de prueba " + externalId);
+        book.setPrice(new BigDecimal("10.00"));
+        book.setStockQuantity(stock);
+        book.setAvailableQuantity(available);
+        book.setNew(true);
+        return bookRepository.save(book).getExternalId();
+    }
+    
+    private int runConcurrently(Callable<Boolean> request) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < PARALLEL_REQUESTS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return request.call();
+                }));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+            return succeeded;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
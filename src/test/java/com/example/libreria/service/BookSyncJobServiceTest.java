@@ -0,0 +1,124 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.BookSyncJobDTO;
+import com.example.libreria.dto.BookSyncResultDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookSyncJobServiceTest {
+    
+    @Mock
+    private BookService bookService;
+    
+    // Ejecutor manual: el trabajo corre recién cuando el test lo indica
+    private final List<Runnable> submitted = new ArrayList<>();
+    private BookSyncJobService bookSyncJobService;
+    
+    @BeforeEach
+    void setUp() {
+        bookSyncJobService = new BookSyncJobService(bookService, submitted::add, 2);
+    }
+    
+    @Test
+    void testStartSync_ReturnsRunningJobAndReportsProgress() {
+        BookSyncJobDTO started = bookSyncJobService.startSync("api");
+        assertEquals(BookSyncJobDTO.JobStatus.RUNNING, started.getStatus());
+        when(bookService.syncBooksFromExternalApi(any())).thenAnswer(invocation -> {
+            Consumer<BookSyncResultDTO> progress = invocation.getArgument(0);
+            BookSyncResultDTO result = new BookSyncResultDTO();
+            result.setCreated(500);
+            result.setProcessed(500);
+            progress.accept(result);
+            // Avance visible mientras el trabajo sigue corriendo
+            BookSyncJobDTO running = bookSyncJobService.getJob(started.getJobId());
+            assertEquals(BookSyncJobDTO.JobStatus.RUNNING, running.getStatus());
+            assertEquals(1, running.getCommittedChunks());
+            assertEquals(500, running.getResult().getProcessed());
+            result.setCreated(700);
+            result.setProcessed(700);
+            return result;
+        });
+        
+        submitted.get(0).run();
+        
+        BookSyncJobDTO finished = bookSyncJobService.getJob(started.getJobId());
+        assertEquals(BookSyncJobDTO.JobStatus.COMPLETED, finished.getStatus());
+        assertEquals(700, finished.getResult().getCreated());
+        assertNotNull(finished.getFinishedAt());
+        assertNull(finished.getError());
+        assertNull(finished.getFailedChunk());
+    }
+    
+    @Test
+    void testStartSync_WhileRunningReturnsSameJob() {
+        BookSyncJobDTO first = bookSyncJobService.startSync("api");
+        
+        BookSyncJobDTO second = bookSyncJobService.startSync("scheduler");
+        
+        assertEquals(first.getJobId(), second.getJobId());
+        assertEquals(1, submitted.size());
+    }
+    
+    @Test
+    void testStartSync_FailureIsReportedAndAllowsNewJob() {
+        when(bookService.syncBooksFromExternalApi(any()))
+                .thenThrow(new RuntimeException("Error al obtener libros de la API externa: 503"));
+        BookSyncJobDTO failed = bookSyncJobService.startSync("api");
+        submitted.get(0).run();
+        
+        BookSyncJobDTO status = bookSyncJobService.getJob(failed.getJobId());
+        assertEquals(BookSyncJobDTO.JobStatus.FAILED, status.getStatus());
+        assertEquals("Error al obtener libros de la API externa: 503", status.getError());
+        assertNotEquals(failed.getJobId(), bookSyncJobService.startSync("api").getJobId());
+    }
+    
+    @Test
+    void testStartSync_FailureRecordsHowFarTheSyncGot() {
+        when(bookService.syncBooksFromExternalApi(any())).thenAnswer(invocation -> {
+            Consumer<BookSyncResultDTO> progress = invocation.getArgument(0);
+            BookSyncResultDTO result = new BookSyncResultDTO();
+            progress.accept(result);
+            progress.accept(result);
+            throw new RuntimeException("Error al leer el catálogo descargado");
+        });
+        BookSyncJobDTO failed = bookSyncJobService.startSync("api");
+        submitted.get(0).run();
+        
+        BookSyncJobDTO status = bookSyncJobService.getJob(failed.getJobId());
+        assertEquals(BookSyncJobDTO.JobStatus.FAILED, status.getStatus());
+        assertEquals(2, status.getCommittedChunks());
+        assertEquals(3, status.getFailedChunk());
+    }
+    
+    @Test
+    void testGetJob_UnknownId() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> bookSyncJobService.getJob("desconocido"));
+        
+        assertTrue(exception.getMessage().contains("no encontrado"));
+    }
+    
+    @Test
+    void testStartSync_KeepsOnlyRecentFinishedJobs() {
+        when(bookService.syncBooksFromExternalApi(any())).thenReturn(new BookSyncResultDTO());
+        List<String> jobIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            jobIds.add(bookSyncJobService.startSync("api").getJobId());
+            submitted.get(i).run();
+        }
+        
+        assertThrows(RuntimeException.class, () -> bookSyncJobService.getJob(jobIds.get(0)));
+        assertEquals(BookSyncJobDTO.JobStatus.COMPLETED, bookSyncJobService.getJob(jobIds.get(2)).getStatus());
+    }
+}
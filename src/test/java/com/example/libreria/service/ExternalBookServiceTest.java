@@ -0,0 +1,321 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.ExternalBookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExternalBookServiceTest {
+    
+    private static final Path BOOKS_FEED = Path.of("books-db.json");
+    private static final String API_URL = "http://localhost/books";
+    private static final int MAX_PARALLELISM = 2;
+    
+    @Mock
+    private RestTemplate restTemplate;
+    
+    @TempDir
+    private Path snapshotDir;
+    
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private ExternalBookService externalBookService;
+    
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .recordExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+                .build());
+        RetryRegistry retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(2)
+                .waitDuration(Duration.ofMillis(1))
+                .retryOnException(new ExternalApiRetryPredicate())
+                .build());
+        externalBookService = new ExternalBookService(restTemplate, new ObjectMapper(), new SimpleAsyncTaskExecutor("external-api-"),
+                new BookSnapshotStore(snapshotDir, Duration.ofHours(24)), circuitBreakerRegistry, retryRegistry, MAX_PARALLELISM);
+        ReflectionTestUtils.setField(externalBookService, "externalApiUrl", API_URL);
+    }
+    
+    @Test
+    void testReadBooks_DeliversBoundedChunks() throws Exception {
+        List<List<ExternalBookDTO>> chunks = new ArrayList<>();
+        
+        int total;
+        try (InputStream body = Files.newInputStream(BOOKS_FEED)) {
+            total = externalBookService.readBooks(body, 3, chunks::add);
+        }
+        
+        assertEquals(4, total);
+        assertEquals(2, chunks.size());
+        assertEquals(3, chunks.get(0).size());
+        assertEquals(1, chunks.get(1).size());
+        ExternalBookDTO first = chunks.get(0).get(0);
+        assertEquals(258027L, first.getId());
+        assertEquals("The Lord of the Rings", first.getTitle());
+        assertEquals(List.of("J. R. R. Tolkien"), first.getAuthorName());
+        assertTrue(first.getHasFulltext());
+    }
+    
+    @Test
+    void testStreamAllBooks_ParsesResponseBody() throws Exception {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        stubCatalogResponse(HttpStatus.OK, responseHeaders, new HttpHeaders());
+        List<ExternalBookDTO> books = new ArrayList<>();
+        
+        boolean modified = externalBookService.streamAllBooks(500, books::addAll);
+        
+        assertTrue(modified);
+        assertEquals(4, books.size());
+        assertEquals(50012L, books.get(3).getId());
+    }
+    
+    @Test
+    void testStreamAllBooks_ConditionalGetNotModified() throws Exception {
+        HttpHeaders firstResponse = new HttpHeaders();
+        firstResponse.setETag("\"v1\"");
+        firstResponse.set(HttpHeaders.LAST_MODIFIED, "Wed, 14 Oct 2026 10:00:00 GMT");
+        stubCatalogResponse(HttpStatus.OK, firstResponse, new HttpHeaders());
+        externalBookService.streamAllBooks(500, chunk -> { });
+        
+        HttpHeaders secondRequest = new HttpHeaders();
+        stubCatalogResponse(HttpStatus.NOT_MODIFIED, new HttpHeaders(), secondRequest);
+        List<ExternalBookDTO> books = new ArrayList<>();
+        
+        boolean modified = externalBookService.streamAllBooks(500, books::addAll);
+        
+        assertFalse(modified);
+        assertTrue(books.isEmpty());
+        assertEquals(List.of("\"v1\""), secondRequest.getIfNoneMatch());
+        assertEquals("Wed, 14 Oct 2026 10:00:00 GMT", secondRequest.getFirst(HttpHeaders.IF_MODIFIED_SINCE));
+    }
+    
+    @Test
+    void testFetchBookByIdAsync_RunsOnExternalApiExecutor() throws Exception {
+        ExternalBookDTO book = new ExternalBookDTO();
+        book.setId(258027L);
+        List<String> threads = new ArrayList<>();
+        when(restTemplate.getForObject(API_URL + "/{id}", ExternalBookDTO.class, 258027L)).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return book;
+        });
+        
+        CompletableFuture<ExternalBookDTO> future = externalBookService.fetchBookByIdAsync(258027L);
+        
+        assertSame(book, future.get(5, TimeUnit.SECONDS));
+        assertTrue(threads.get(0).startsWith("external-api-"));
+    }
+    
+    @Test
+    void testFetchBooksByIds_BoundedParallelism() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(restTemplate.getForObject(eq(API_URL + "/{id}"), eq(ExternalBookDTO.class), any(Long.class))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return book(invocation.getArgument(2));
+        });
+        
+        Map<Long, CompletableFuture<ExternalBookDTO>> results = externalBookService.fetchBooksByIds(List.of(1L, 2L, 3L, 4L, 5L, 6L, 2L));
+        
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), List.copyOf(results.keySet()));
+        for (Map.Entry<Long, CompletableFuture<ExternalBookDTO>> result : results.entrySet()) {
+            assertEquals(result.getKey(), result.getValue().get(5, TimeUnit.SECONDS).getId());
+        }
+        assertTrue(maxRunning.get() <= MAX_PARALLELISM);
+        verify(restTemplate, times(6)).getForObject(eq(API_URL + "/{id}"), eq(ExternalBookDTO.class), any(Long.class));
+    }
+    
+    @Test
+    void testFetchBookByIdAsync_CoalescesInFlightRequests() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(restTemplate.getForObject(API_URL + "/{id}", ExternalBookDTO.class, 7L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return book(7L);
+        });
+        
+        CompletableFuture<ExternalBookDTO> first = externalBookService.fetchBookByIdAsync(7L);
+        CompletableFuture<ExternalBookDTO> second = externalBookService.fetchBooksByIds(List.of(7L)).get(7L);
+        release.countDown();
+        
+        assertEquals(7L, first.get(5, TimeUnit.SECONDS).getId());
+        assertSame(first.get(), second.get(5, TimeUnit.SECONDS));
+        verify(restTemplate, times(1)).getForObject(API_URL + "/{id}", ExternalBookDTO.class, 7L);
+    }
+    
+    @Test
+    void testFetchBooksByIds_FailureIsPerId() throws Exception {
+        when(restTemplate.getForObject(API_URL + "/{id}", ExternalBookDTO.class, 1L)).thenReturn(book(1L));
+        when(restTemplate.getForObject(API_URL + "/{id}", ExternalBookDTO.class, 2L))
+                .thenThrow(new RestClientException("503 Service Unavailable"));
+        
+        Map<Long, CompletableFuture<ExternalBookDTO>> results = externalBookService.fetchBooksByIds(List.of(1L, 2L));
+        
+        assertEquals(1L, results.get(1L).get(5, TimeUnit.SECONDS).getId());
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> results.get(2L).get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause().getMessage().startsWith("Error al obtener el libro de la API externa"));
+    }
+    
+    @Test
+    void testStreamAllBooks_RetriesConnectFailure() throws Exception {
+        ClientHttpResponse response = mockCatalogResponse(HttpStatus.OK, new HttpHeaders());
+        when(restTemplate.execute(eq(API_URL), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenThrow(new ResourceAccessException("Connection refused", new ConnectException("Connection refused")))
+                .thenAnswer(invocation -> invocation.<ResponseExtractor<?>>getArgument(3).extractData(response));
+        List<ExternalBookDTO> books = new ArrayList<>();
+        
+        assertTrue(externalBookService.streamAllBooks(500, books::addAll));
+        
+        assertEquals(4, books.size());
+        verify(restTemplate, times(2)).execute(eq(API_URL), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class));
+    }
+    
+    @Test
+    void testStreamAllBooks_FallsBackToSnapshotWhenApiIsDown() throws Exception {
+        stubCatalogResponse(HttpStatus.OK, new HttpHeaders(), new HttpHeaders());
+        externalBookService.streamAllBooks(500, chunk -> { });
+        
+        reset(restTemplate);
+        when(restTemplate.execute(eq(API_URL), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        List<ExternalBookDTO> books = new ArrayList<>();
+        
+        assertTrue(externalBookService.streamAllBooks(500, books::addAll));
+        
+        assertEquals(4, books.size());
+        assertEquals(258027L, books.get(0).getId());
+    }
+    
+    @Test
+    void testStreamAllBooks_WithoutSnapshotFails() {
+        when(restTemplate.execute(eq(API_URL), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+        
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> externalBookService.streamAllBooks(500, chunk -> { }));
+        
+        assertTrue(exception.getMessage().startsWith("Error al obtener libros de la API externa"));
+    }
+    
+    @Test
+    void testFetchBookById_OpenCircuitSkipsApiAndUsesSnapshot() throws Exception {
+        stubCatalogResponse(HttpStatus.OK, new HttpHeaders(), new HttpHeaders());
+        externalBookService.streamAllBooks(500, chunk -> { });
+        circuitBreakerRegistry.circuitBreaker(ExternalBookService.EXTERNAL_BOOKS).transitionToOpenState();
+        
+        ExternalBookDTO book = externalBookService.fetchBookById(50012L);
+        
+        assertEquals(50012L, book.getId());
+        verify(restTemplate, never()).getForObject(anyString(), eq(ExternalBookDTO.class), any(Long.class));
+    }
+    
+    @Test
+    void testFetchBookById_ReadTimeoutIsNotRetried() {
+        when(restTemplate.getForObject(API_URL + "/{id}", ExternalBookDTO.class, 1L))
+                .thenThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out")));
+        
+        assertThrows(RuntimeException.class, () -> externalBookService.fetchBookById(1L));
+        
+        verify(restTemplate, times(1)).getForObject(API_URL + "/{id}", ExternalBookDTO.class, 1L);
+    }
+    
+    @Test
+    void testFetchBookById_RepeatedTimeoutsOpenCircuit() {
+        when(restTemplate.getForObject(eq(API_URL + "/{id}"), eq(ExternalBookDTO.class), any(Long.class)))
+                .thenThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out")));
+        
+        for (long id = 1; id <= 4; id++) {
+            long bookId = id;
+            assertThrows(RuntimeException.class, () -> externalBookService.fetchBookById(bookId));
+        }
+        
+        // Cuatro llamadas sin reintento: cuatro fallos llenan la ventana y abren el circuito
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker(ExternalBookService.EXTERNAL_BOOKS).getState());
+        assertThrows(RuntimeException.class, () -> externalBookService.fetchBookById(5L));
+        verify(restTemplate, times(4)).getForObject(eq(API_URL + "/{id}"), eq(ExternalBookDTO.class), any(Long.class));
+    }
+    
+    @Test
+    void testFetchBookById_NotFoundIsNotRetried() {
+        when(restTemplate.getForObject(API_URL + "/{id}", ExternalBookDTO.class, 404L))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        
+        assertThrows(RuntimeException.class, () -> externalBookService.fetchBookById(404L));
+        
+        verify(restTemplate, times(1)).getForObject(API_URL + "/{id}", ExternalBookDTO.class, 404L);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker(ExternalBookService.EXTERNAL_BOOKS).getState());
+    }
+    
+    private static ExternalBookDTO book(Long id) {
+        ExternalBookDTO book = new ExternalBookDTO();
+        book.setId(id);
+        return book;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void stubCatalogResponse(HttpStatus status, HttpHeaders responseHeaders, HttpHeaders requestHeaders) throws Exception {
+        ClientHttpRequest request = mock(ClientHttpRequest.class);
+        when(request.getHeaders()).thenReturn(requestHeaders);
+        ClientHttpResponse response = mockCatalogResponse(status, responseHeaders);
+        when(restTemplate.execute(eq(API_URL), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+                    return invocation.<ResponseExtractor<Boolean>>getArgument(3).extractData(response);
+                });
+    }
+    
+    private static ClientHttpResponse mockCatalogResponse(HttpStatus status, HttpHeaders responseHeaders) throws Exception {
+        ClientHttpResponse response = mock(ClientHttpResponse.class);
+        when(response.getStatusCode()).thenReturn(status);
+        if (status == HttpStatus.OK) {
+            when(response.getHeaders()).thenReturn(responseHeaders);
+            when(response.getBody()).thenReturn(Files.newInputStream(BOOKS_FEED));
+        }
+        return response;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.libreria.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:libreria_metrics_db",
+        "libreria.sql.slow-query.enabled=true"
+})
+@AutoConfigureObservability
+class MetricsEndpointIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testPrometheusEndpoint_ExposesServiceAndBusinessMetrics() {
+        restTemplate.getForEntity("/api/users", String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String body = response.getBody();
+        assertNotNull(body);
+        // Histograma de latencia por método de servicio (@Timed)
+        assertTrue(body.contains("libreria_service_seconds_bucket{"));
+        assertTrue(body.contains("class=\"com.example.libreria.service.UserService\""));
+        assertTrue(body.contains("method=\"getAllUsers\""));
+        // Repositorios y peticiones HTTP
+        assertTrue(body.contains("spring_data_repository_invocations_seconds_bucket{"));
+        assertTrue(body.contains("http_server_requests_seconds_bucket{"));
+        // Contadores de negocio
+        assertTrue(body.contains("libreria_reservations_total{application=\"libreria\",event=\"created\"}"));
+        assertTrue(body.contains("libreria_reservations_total{application=\"libreria\",event=\"returned\"}"));
+        assertTrue(body.contains("libreria_books_stock_rejections_total"));
+        // Saturación del pool de conexiones: ocupadas, libres, en espera e histograma del tiempo de obtención
+        assertTrue(body.contains("hikaricp_connections_active{"));
+        assertTrue(body.contains("hikaricp_connections_idle{"));
+        assertTrue(body.contains("hikaricp_connections_pending{"));
+        assertTrue(body.contains("hikaricp_connections_acquire_seconds_bucket{"));
+        // Estado del circuit breaker de la API externa
+        assertTrue(body.contains("resilience4j_circuitbreaker_state{application=\"libreria\",name=\"externalBooks\",state=\"closed\"} 1.0"));
+    }
+
+    @Test
+    void testSqlStatsEndpoint_AggregatesStatementsAndResets() throws Exception {
+        restTemplate.getForEntity("/api/users", String.class);
+        
+        JsonNode report = objectMapper.readTree(restTemplate.getForObject("/actuator/sqlstats", String.class));
+        
+        assertEquals(0, report.get("droppedStatements").asLong());
+        JsonNode usersQuery = null;
+        for (JsonNode statement : report.get("statements")) {
+            if (statement.get("statement").asText().contains("from users")) {
+                usersQuery = statement;
+            }
+        }
+        assertNotNull(usersQuery);
+        assertTrue(usersQuery.get("executions").asLong() >= 1);
+        assertTrue(usersQuery.get("rows").asLong() >= 5);
+        
+        restTemplate.delete("/actuator/sqlstats");
+        JsonNode afterReset = objectMapper.readTree(restTemplate.getForObject("/actuator/sqlstats", String.class));
+        assertTrue(afterReset.get("statements").isEmpty());
+    }
+}
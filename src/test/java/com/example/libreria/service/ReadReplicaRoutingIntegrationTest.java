@@ -0,0 +1,88 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.UserRequestDTO;
+import com.example.libreria.dto.UserResponseDTO;
+import com.example.libreria.model.User;
+import com.example.libreria.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// La réplica es otra base H2 en memoria con el mismo esquema y datos propios: lo que se lee en
+// transacciones de solo lectura tiene que venir de ella, y las escrituras quedar en el primario
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:libreria_primary_db",
+        "libreria.datasource.replica.url=" + ReadReplicaRoutingIntegrationTest.REPLICA_URL,
+        "libreria.datasource.replica.username=sa"
+})
+class ReadReplicaRoutingIntegrationTest {
+    
+    static final String REPLICA_URL = "jdbc:h2:mem:libreria_replica_db;DB_CLOSE_DELAY=-1";
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @BeforeAll
+    static void createReplica() throws Exception {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("RUNSCRIPT FROM 'classpath:db/migration/V1__init_schema.sql'");
+            statement.execute("INSERT INTO users (name, email, created_at) VALUES ('Réplica', 'replica@example.com', CURRENT_TIMESTAMP)");
+        }
+    }
+    
+    @Test
+    void testReadOnlyTransactions_ReadFromReplica() {
+        UserResponseDTO created = userService.createUser(new UserRequestDTO("Primario", "primary@example.com", null));
+        
+        List<String> replicaUsers = userService.getAllUsers().stream().map(UserResponseDTO::getEmail).toList();
+        
+        assertEquals(List.of("replica@example.com"), replicaUsers);
+        // Una transacción de escritura lee del primario, con los datos de data.sql y el usuario nuevo
+        List<String> primaryUsers = transactionTemplate.execute(status ->
+                userRepository.findAll().stream().map(User::getEmail).toList());
+        assertTrue(primaryUsers.contains("primary@example.com"));
+        assertTrue(primaryUsers.contains("juan.perez@example.com"));
+        assertFalse(primaryUsers.contains("replica@example.com"));
+        assertThrows(RuntimeException.class, () -> userService.getUserById(created.getId()));
+    }
+    
+    @Test
+    void testReadOnlyTransactions_UseReadOnlySessionWithoutFlush() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        
+        readOnly.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            assertTrue(session.isDefaultReadOnly());
+            assertEquals(FlushMode.MANUAL, session.getHibernateFlushMode());
+            // Sin snapshot para dirty checking: el cambio no se escribe
+            User user = userRepository.findByEmail("replica@example.com").orElseThrow();
+            assertTrue(session.isReadOnly(user));
+            user.setName("Modificado");
+        });
+        
+        assertEquals("Réplica", userService.getAllUsers().get(0).getName());
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.libreria.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationFeeCalculatorTest {
+    
+    @Test
+    void testComputeFees_MatchesBigDecimalArithmetic() {
+        Random random = new Random(42);
+        int count = 10_000;
+        long[] dailyRateCents = new long[count];
+        int[] rentalDays = new int[count];
+        long[] bookPriceCents = new long[count];
+        long[] daysLate = new long[count];
+        for (int i = 0; i < count; i++) {
+            bookPriceCents[i] = random.nextInt(100_000);
+            dailyRateCents[i] = bookPriceCents[i];
+            rentalDays[i] = random.nextInt(60);
+            daysLate[i] = random.nextInt(400) - 50;
+        }
+        long[] lateFeeCents = new long[count];
+        long[] totalFeeCents = new long[count];
+        
+        ReservationFeeCalculator.computeFees(dailyRateCents, rentalDays, bookPriceCents, daysLate, lateFeeCents, totalFeeCents);
+        
+        for (int i = 0; i < count; i++) {
+            BigDecimal price = ReservationFeeCalculator.fromCents(bookPriceCents[i]);
+            BigDecimal lateFee = ReservationService.calculateLateFee(price, daysLate[i]);
+            BigDecimal totalFee = ReservationService.calculateTotalFee(price, rentalDays[i]).add(lateFee);
+            assertEquals(lateFee, ReservationFeeCalculator.fromCents(lateFeeCents[i]), "multa del elemento " + i);
+            assertEquals(totalFee, ReservationFeeCalculator.fromCents(totalFeeCents[i]), "total del elemento " + i);
+        }
+    }
+    
+    @Test
+    void testComputeFees_RoundsHalfUp() {
+        long[] lateFeeCents = new long[1];
+        long[] totalFeeCents = new long[1];
+        
+        // 0.10 * 15% * 1 día = 0.015 -> 0.02
+        ReservationFeeCalculator.computeFees(new long[]{10}, new int[]{1}, new long[]{10}, new long[]{1}, lateFeeCents, totalFeeCents);
+        
+        assertEquals(new BigDecimal("0.02"), ReservationFeeCalculator.fromCents(lateFeeCents[0]));
+        assertEquals(new BigDecimal("0.12"), ReservationFeeCalculator.fromCents(totalFeeCents[0]));
+    }
+    
+    @Test
+    void testToCents() {
+        assertEquals(1599L, ReservationFeeCalculator.toCents(new BigDecimal("15.99")));
+        assertEquals(1590L, ReservationFeeCalculator.toCents(new BigDecimal("15.9")));
+        assertEquals(0L, ReservationFeeCalculator.toCents(null));
+    }
+}
@@ -0,0 +1,408 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.CursorPageDTO;
+import com.example.libreria.dto.ReservationBatchItemDTO;
+import com.example.libreria.dto.ReservationBatchResultDTO;
+import com.example.libreria.dto.ReservationRequestDTO;
+import com.example.libreria.dto.ReservationResponseDTO;
+import com.example.libreria.dto.ReturnBatchResultDTO;
+import com.example.libreria.dto.ReturnBookRequestDTO;
+import com.example.libreria.dto.UserReservationSummaryDTO;
+import com.example.libreria.model.Book;
+import com.example.libreria.model.Reservation;
+import com.example.libreria.model.User;
+import com.example.libreria.repository.BookRepository;
+import com.example.libreria.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:libreria_reservation_statistics_db",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.example.libreria.service.ReservationServiceIntegrationTest$SequenceCallCounter"
+})
+class ReservationServiceIntegrationTest {
+    
+    private static final Long BOOK_ID = 910001L;
+    
+    @Autowired
+    private ReservationService reservationService;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private BookService bookService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private OverdueReservationSweeper overdueSweeper;
+    
+    private Statistics statistics;
+    private User user;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!bookRepository.existsByExternalId(BOOK_ID)) {
+            Book book = new Book();
+            book.setExternalId(BOOK_ID);
+            book.setTitle("Rayuela");
+            book.setPrice(new BigDecimal("18.50"));
+            book.setStockQuantity(100);
+            book.setAvailableQuantity(100);
+            book.setNew(true);
+            bookRepository.save(book);
+        }
+        user = userRepository.findByEmail("statistics@example.com").orElseGet(() -> {
+            User newUser = new User();
+            newUser.setName("Statistics");
+            newUser.setEmail("statistics@example.com");
+            return userRepository.save(newUser);
+        });
+    }
+    
+    @Test
+    void testCreateReservation_FixedStatementCount() {
+        ReservationRequestDTO requestDTO = new ReservationRequestDTO(user.getId(), BOOK_ID, 3, LocalDate.now());
+        int availableBefore = bookRepository.findByExternalId(BOOK_ID).orElseThrow().getAvailableQuantity();
+        
+        statistics.clear();
+        SequenceCallCounter.CALLS.set(0);
+        reservationService.createReservation(requestDTO);
+        
+        // El "next value" de la secuencia solo sale cuando se agota el bloque de 50 IDs: se cuenta aparte
+        int sequenceCalls = SequenceCallCounter.CALLS.get();
+        assertTrue(sequenceCalls <= 1, "Llamadas a la secuencia: " + sequenceCalls);
+        // SELECT usuario, UPDATE condicional de stock, SELECT libro (proxy), INSERT reserva
+        assertEquals(4, statistics.getPrepareStatementCount() - sequenceCalls);
+        assertEquals(availableBefore - 1, bookRepository.findByExternalId(BOOK_ID).orElseThrow().getAvailableQuantity());
+    }
+    
+    @Test
+    void testCreateReservations_GroupsByBookWithPartialFailures() {
+        Long scarceBookId = 910002L;
+        Book scarce = new Book();
+        scarce.setExternalId(scarceBookId);
+        scarce.setTitle("Ficciones");
+        scarce.setPrice(new BigDecimal("9.90"));
+        scarce.setStockQuantity(3);
+        scarce.setAvailableQuantity(3);
+        scarce.setNew(true);
+        bookRepository.save(scarce);
+        List<ReservationRequestDTO> requests = new ArrayList<>();
+        User batchUser = batchUser();
+        for (int i = 0; i < 30; i++) {
+            requests.add(new ReservationRequestDTO(batchUser.getId(), BOOK_ID, 7, LocalDate.now()));
+        }
+        for (int i = 0; i < 5; i++) {
+            requests.add(new ReservationRequestDTO(batchUser.getId(), scarceBookId, 7, LocalDate.now()));
+        }
+        requests.add(new ReservationRequestDTO(-1L, BOOK_ID, 7, LocalDate.now()));
+        requests.add(new ReservationRequestDTO(batchUser.getId(), -1L, 7, LocalDate.now()));
+        int availableBefore = bookRepository.findByExternalId(BOOK_ID).orElseThrow().getAvailableQuantity();
+        
+        statistics.clear();
+        ReservationBatchResultDTO result = reservationService.createReservations(requests);
+        
+        assertEquals(37, result.getRequested());
+        assertEquals(33, result.getCreated());
+        assertEquals(4, result.getFailed());
+        // Los tres primeros del libro escaso se quedan con el stock
+        List<ReservationBatchItemDTO> items = result.getResults();
+        assertTrue(items.subList(30, 33).stream().allMatch(ReservationBatchItemDTO::isSuccess));
+        assertEquals("No hay libros disponibles para reservar", items.get(33).getError());
+        assertEquals("No hay libros disponibles para reservar", items.get(34).getError());
+        assertEquals("Usuario no encontrado con ID: -1", items.get(35).getError());
+        assertEquals("Libro no encontrado con ID externo: -1", items.get(36).getError());
+        assertEquals(new BigDecimal("69.30"), items.get(30).getReservation().getTotalFee());
+        
+        // Usuarios, libros, un UPDATE por libro (el escaso relee su stock y reintenta), la secuencia
+        // y los INSERT en un batch JDBC: la cantidad de sentencias no crece con el tamaño del lote
+        assertEquals(33, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 10, "Sentencias preparadas: " + statistics.getPrepareStatementCount());
+        assertEquals(availableBefore - 30, bookRepository.findByExternalId(BOOK_ID).orElseThrow().getAvailableQuantity());
+        assertEquals(0, bookRepository.findByExternalId(scarceBookId).orElseThrow().getAvailableQuantity());
+    }
+    
+    @Test
+    void testReturnBooks_AggregatesStockAndComputesFees() {
+        Long returnBookId = 910003L;
+        Book book = new Book();
+        book.setExternalId(returnBookId);
+        book.setTitle("El Aleph");
+        book.setPrice(new BigDecimal("12.35"));
+        book.setStockQuantity(10);
+        book.setAvailableQuantity(10);
+        book.setNew(true);
+        bookRepository.save(book);
+        LocalDate start = LocalDate.now().minusDays(20);
+        List<ReservationRequestDTO> requests = new ArrayList<>();
+        User batchUser = batchUser();
+        for (int i = 0; i < 4; i++) {
+            requests.add(new ReservationRequestDTO(batchUser.getId(), returnBookId, 7 + i, start));
+        }
+        List<Long> ids = reservationService.createReservations(requests).getResults().stream()
+                .map(item -> item.getReservation().getId())
+                .toList();
+        assertEquals(6, bookRepository.findByExternalId(returnBookId).orElseThrow().getAvailableQuantity());
+        List<Long> toReturn = new ArrayList<>(ids);
+        toReturn.add(ids.get(0));
+        toReturn.add(-1L);
+        
+        statistics.clear();
+        ReturnBatchResultDTO result = reservationService.returnBooks(toReturn, LocalDate.now());
+        
+        assertEquals(4, result.getReturned());
+        assertEquals(2, result.getFailed());
+        assertEquals("La reserva ya fue devuelta", result.getResults().get(4).getError());
+        assertEquals("Reserva no encontrada con ID: -1", result.getResults().get(5).getError());
+        // Mismo resultado que la devolución individual: 7 días de alquiler, 13 de demora
+        ReservationResponseDTO first = result.getResults().get(0).getReservation();
+        BigDecimal expectedLateFee = ReservationService.calculateLateFee(new BigDecimal("12.35"), 13);
+        assertEquals(expectedLateFee, first.getLateFee());
+        assertEquals(ReservationService.calculateTotalFee(new BigDecimal("12.35"), 7).add(expectedLateFee), first.getTotalFee());
+        assertEquals(Reservation.ReservationStatus.RETURNED, first.getStatus());
+        // SELECT de las reservas, un UPDATE de stock para el libro y los UPDATE de reservas en batch
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(10, bookRepository.findByExternalId(returnBookId).orElseThrow().getAvailableQuantity());
+        assertEquals(Reservation.ReservationStatus.RETURNED, reservationService.getReservationById(ids.get(3)).getStatus());
+    }
+    
+    @Test
+    void testReturnBooks_CopiesBeyondStockFailPerItem() {
+        Long returnBookId = 910004L;
+        Book book = new Book();
+        book.setExternalId(returnBookId);
+        book.setTitle("Ficciones");
+        book.setPrice(new BigDecimal("10.00"));
+        book.setStockQuantity(2);
+        book.setAvailableQuantity(2);
+        book.setNew(true);
+        bookRepository.save(book);
+        User batchUser = batchUser();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ids.add(reservationService.createReservation(
+                    new ReservationRequestDTO(batchUser.getId(), returnBookId, 3, LocalDate.now())).getId());
+        }
+        // Stock inconsistente: un ejemplar ya figura como disponible aunque sigue prestado
+        bookService.increaseAvailableQuantity(returnBookId);
+        
+        ReturnBatchResultDTO result = reservationService.returnBooks(ids, LocalDate.now());
+        
+        assertEquals(1, result.getReturned());
+        assertEquals(1, result.getFailed());
+        assertEquals("La cantidad disponible no puede exceder el stock", result.getResults().get(1).getError());
+        assertEquals(2, bookRepository.findByExternalId(returnBookId).orElseThrow().getAvailableQuantity());
+        assertEquals(Reservation.ReservationStatus.ACTIVE, reservationService.getReservationById(ids.get(1)).getStatus());
+    }
+    
+    @Test
+    void testReservationListings_SingleStatement() {
+        for (int i = 0; i < 3; i++) {
+            reservationService.createReservation(new ReservationRequestDTO(user.getId(), BOOK_ID, 5, LocalDate.now()));
+        }
+        
+        statistics.clear();
+        List<ReservationResponseDTO> all = reservationService.getAllReservations(null, null).getContent();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        
+        statistics.clear();
+        List<ReservationResponseDTO> byUser = reservationService.getReservationsByUserId(user.getId(), null, null).getContent();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        
+        statistics.clear();
+        reservationService.getActiveReservations(null, null);
+        reservationService.getOverdueReservations(null, null);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        
+        assertTrue(all.size() >= 3);
+        assertTrue(byUser.size() >= 3);
+        ReservationResponseDTO first = byUser.get(0);
+        assertEquals("Statistics", first.getUserName());
+        assertEquals("Rayuela", first.getBookTitle());
+        assertEquals(BOOK_ID, first.getBookExternalId());
+    }
+    
+    @Test
+    void testGetAllReservations_KeysetPagination() {
+        for (int i = 0; i < 5; i++) {
+            reservationService.createReservation(new ReservationRequestDTO(user.getId(), BOOK_ID, 2, LocalDate.now()));
+        }
+        
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPageDTO<ReservationResponseDTO> page = reservationService.getAllReservations(
+                    cursor != null ? Long.valueOf(cursor) : null, 2);
+            assertTrue(page.getContent().size() <= 2);
+            page.getContent().forEach(reservation -> seen.add(reservation.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        assertTrue(seen.size() >= 5);
+        assertEquals(seen.stream().sorted().distinct().toList(), seen);
+    }
+    
+    @Test
+    void testExportReservations_OneJsonLinePerReservation() throws Exception {
+        reservationService.createReservation(new ReservationRequestDTO(user.getId(), BOOK_ID, 4, LocalDate.now()));
+        int total = reservationService.getAllReservations(null, 500).getContent().size();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        reservationService.exportReservations(out);
+        
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(total, lines.length);
+        JsonNode last = objectMapper.readTree(lines[lines.length - 1]);
+        assertEquals("Rayuela", last.get("bookTitle").asText());
+        assertEquals(LocalDate.now().toString(), last.get("startDate").asText());
+    }
+    
+    @Test
+    void testOverdueSweep_MarksInBoundedBatches() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(reservationService.createReservation(
+                    new ReservationRequestDTO(user.getId(), BOOK_ID, 3, LocalDate.now().minusDays(10))).getId());
+        }
+        
+        // Antes del barrido ya aparecen como vencidas, todavía con estado ACTIVE
+        List<ReservationResponseDTO> pending = reservationService.getOverdueReservations(null, 500).getContent().stream()
+                .filter(reservation -> ids.contains(reservation.getId()))
+                .toList();
+        assertEquals(3, pending.size());
+        assertTrue(pending.stream().allMatch(reservation -> reservation.getStatus() == Reservation.ReservationStatus.ACTIVE));
+        
+        ReflectionTestUtils.setField(overdueSweeper, "batchSize", 2);
+        try {
+            statistics.clear();
+            // Dos lotes: SELECT de IDs + UPDATE por cada uno; el segundo queda incompleto y corta el barrido
+            assertEquals(3, overdueSweeper.sweep(LocalDate.now()));
+            assertEquals(4, statistics.getPrepareStatementCount());
+            assertEquals(0, overdueSweeper.sweep(LocalDate.now()));
+        } finally {
+            ReflectionTestUtils.setField(overdueSweeper, "batchSize", 500);
+        }
+        
+        List<Long> overdue = reservationService.getOverdueReservations(null, null).getContent().stream()
+                .map(ReservationResponseDTO::getId)
+                .toList();
+        assertTrue(overdue.containsAll(ids));
+        
+        // Una reserva vencida se devuelve igual que una activa, con su multa
+        ReservationResponseDTO returned = reservationService.returnBook(ids.get(0), new ReturnBookRequestDTO(LocalDate.now()));
+        assertEquals(Reservation.ReservationStatus.RETURNED, returned.getStatus());
+        assertEquals(0, new BigDecimal("19.43").compareTo(returned.getLateFee()));
+        ReturnBatchResultDTO batch = reservationService.returnBooks(ids, LocalDate.now());
+        assertEquals(2, batch.getReturned());
+        assertEquals("La reserva ya fue devuelta", batch.getResults().get(0).getError());
+    }
+    
+    @Test
+    void testUserSummary_SingleAggregateCachedUntilReservationChanges() {
+        User summaryUser = userRepository.findByEmail("summary@example.com").orElseGet(() -> {
+            User newUser = new User();
+            newUser.setName("Summary");
+            newUser.setEmail("summary@example.com");
+            return userRepository.save(newUser);
+        });
+        UserReservationSummaryDTO empty = reservationService.getUserSummary(summaryUser.getId());
+        assertEquals(0, empty.getActiveReservations());
+        assertEquals(new BigDecimal("0.00"), empty.getTotalSpent());
+        assertNull(empty.getLastActivityDate());
+        assertThrows(RuntimeException.class, () -> reservationService.getUserSummary(-1L));
+        
+        LocalDate start = LocalDate.now().minusDays(10);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(reservationService.createReservation(
+                    new ReservationRequestDTO(summaryUser.getId(), BOOK_ID, 3, start)).getId());
+        }
+        
+        statistics.clear();
+        UserReservationSummaryDTO summary = reservationService.getUserSummary(summaryUser.getId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(3, summary.getActiveReservations());
+        assertEquals(0, summary.getOverdueReservations());
+        assertEquals(0, new BigDecimal("166.50").compareTo(summary.getTotalSpent()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(summary.getTotalLateFees()));
+        assertEquals(start, summary.getLastActivityDate());
+        
+        // Segunda lectura desde la caché, sin consultas
+        statistics.clear();
+        assertSame(summary, reservationService.getUserSummary(summaryUser.getId()));
+        assertEquals(0, statistics.getPrepareStatementCount());
+        
+        // El barrido de vencidas y la devolución invalidan el resumen
+        overdueSweeper.sweep(LocalDate.now());
+        assertEquals(3, reservationService.getUserSummary(summaryUser.getId()).getOverdueReservations());
+        reservationService.returnBook(ids.get(0), new ReturnBookRequestDTO(LocalDate.now()));
+        UserReservationSummaryDTO returned = reservationService.getUserSummary(summaryUser.getId());
+        assertEquals(0, returned.getActiveReservations());
+        assertEquals(2, returned.getOverdueReservations());
+        assertEquals(0, new BigDecimal("185.93").compareTo(returned.getTotalSpent()));
+        assertEquals(0, new BigDecimal("19.43").compareTo(returned.getTotalLateFees()));
+        assertEquals(LocalDate.now(), returned.getLastActivityDate());
+        
+        // Lo mismo con las operaciones en lote
+        reservationService.createReservations(List.of(new ReservationRequestDTO(summaryUser.getId(), BOOK_ID, 2, LocalDate.now())));
+        assertEquals(1, reservationService.getUserSummary(summaryUser.getId()).getActiveReservations());
+        reservationService.returnBooks(ids.subList(1, 3), LocalDate.now());
+        assertEquals(0, reservationService.getUserSummary(summaryUser.getId()).getOverdueReservations());
+    }
+    
+    // Cuenta las sentencias contra la secuencia de reservas, sin modificarlas
+    public static class SequenceCallCounter implements StatementInspector {
+        
+        static final AtomicInteger CALLS = new AtomicInteger();
+        
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase().contains("reservations_seq")) {
+                CALLS.incrementAndGet();
+            }
+            return sql;
+        }
+    }
+    
+    // Usuario propio para los lotes: los listados de arriba esperan solo reservas de "Rayuela"
+    private User batchUser() {
+        return userRepository.findByEmail("batch@example.com").orElseGet(() -> {
+            User newUser = new User();
+            newUser.setName("Batch");
+            newUser.setEmail("batch@example.com");
+            return userRepository.save(newUser);
+        });
+    }
+}
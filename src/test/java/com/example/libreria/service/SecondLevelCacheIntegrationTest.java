@@ -0,0 +1,132 @@
+package com.example.libreria.service;
+
+import com.example.libreria.dto.ReservationRequestDTO;
+import com.example.libreria.model.Book;
+import com.example.libreria.model.User;
+import com.example.libreria.repository.BookRepository;
+import com.example.libreria.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:libreria_l2cache_db"
+})
+@ActiveProfiles("l2cache")
+class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testBookLookup_ServedFromSecondLevelCache() {
+        Long externalId = createBook(940001L, 5);
+        assertEquals(2, readAuthors(externalId).size());
+
+        statistics.clear();
+        assertEquals(2, readAuthors(externalId).size());
+
+        // Ni el libro ni su colección de autores vuelven a la base
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void testBulkDecrement_InvalidatesCachedBook() {
+        Long externalId = createBook(940002L, 5);
+        assertEquals(5, bookRepository.findByExternalId(externalId).orElseThrow().getAvailableQuantity());
+
+        Integer updated = transactionTemplate.execute(status -> bookRepository.decrementAvailableQuantity(externalId));
+        assertEquals(1, updated);
+
+        assertEquals(4, bookRepository.findByExternalId(externalId).orElseThrow().getAvailableQuantity());
+    }
+
+    @Test
+    void testUserLookup_ServedFromSecondLevelCache() {
+        User user = createUser("l2cache.lookup@example.com");
+        userService.getUserById(user.getId());
+
+        statistics.clear();
+        userService.getUserById(user.getId());
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testActiveReservations_QueryCacheInvalidatedOnWrite() {
+        Long externalId = createBook(940003L, 5);
+        User user = createUser("l2cache.reservations@example.com");
+        int before = reservationService.getActiveReservations(null, 500).getContent().size();
+
+        statistics.clear();
+        reservationService.getActiveReservations(null, 500);
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        reservationService.createReservation(new ReservationRequestDTO(user.getId(), externalId, 3, LocalDate.now()));
+
+        assertEquals(before + 1, reservationService.getActiveReservations(null, 500).getContent().size());
+    }
+
+    private List<String> readAuthors(Long externalId) {
+        return transactionTemplate.execute(status ->
+                List.copyOf(bookRepository.findByExternalId(externalId).orElseThrow().getAuthorName()));
+    }
+
+    private Long createBook(Long externalId, int stock) {
+        Book book = new Book();
+        book.setExternalId(externalId);
+        book.setTitle("Libro cacheado " + externalId);
+        book.setAuthorName(List.of("Autora Uno", "Autor Dos"));
+        book.setPrice(new BigDecimal("15.00"));
+        book.setStockQuantity(stock);
+        book.setAvailableQuantity(stock);
+        book.setNew(true);
+        return bookRepository.save(book).getExternalId();
+    }
+
+    private User createUser(String email) {
+        return userRepository.findByEmail(email).orElseGet(() -> {
+            User user = new User();
+            user.setName("Lector L2");
+            user.setEmail(email);
+            return userRepository.save(user);
+        });
+    }
+}
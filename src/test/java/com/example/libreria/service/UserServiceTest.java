@@ -110,6 +110,7 @@ class UserServiceTest {
     
     @Test
     void testUpdateUser_Success() {
+        userRequestDTO.setEmail("juan.perez@example.com");
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
         when(userRepository.existsByEmail(anyString())).thenReturn(false);
         when(userRepository.save(any(User.class))).thenReturn(testUser);